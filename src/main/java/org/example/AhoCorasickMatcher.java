@@ -0,0 +1,210 @@
+package org.example;
+
+import java.lang.foreign.MemorySegment;
+import java.lang.foreign.ValueLayout;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+
+// Aho-Corasick automaton compiled to a dense DFA over byte classes: one table lookup per haystack
+// byte, however many patterns there are. Bytes that occur in no pattern share class 0, which keeps
+// the table small.
+//
+// The trie is first built sparsely, from the patterns in sorted order, so that its real number of states
+// is known before the table is sized. Sets too large for the table (hundreds of thousands of patterns from
+// -f) keep the sparse trie instead, which stores each state's children sorted by class and follows
+// failure links while matching.
+public class AhoCorasickMatcher implements ByteMatcher {
+
+    // The dense table may have at most this many entries, which take 64 MiB.
+    static final long DENSE_TABLE_LIMIT = 16 * 1024 * 1024;
+
+    private final int[] byteClass = new int[256];
+    private final int classCount;
+    private final int[] matchLength;
+
+    // In the dense form, the table holds the next state for every state and class.
+    private final int[] transitions;
+
+    // In the sparse form, the children of state s are at childStart[s] up to childStart[s + 1] in childLabel
+    // and childState.
+    private final int[] childStart;
+    private final int[] childLabel;
+    private final int[] childState;
+    private final int[] fail;
+
+    // Patterns must be non-empty; when ignoring ASCII case they must already be lower-cased.
+    public AhoCorasickMatcher(List<byte[]> patterns, boolean ignoreAsciiCase) {
+        this(patterns, ignoreAsciiCase, DENSE_TABLE_LIMIT);
+    }
+
+    AhoCorasickMatcher(List<byte[]> patterns, boolean ignoreAsciiCase, long denseTableLimit) {
+        int classes = 1;
+        long totalLength = 0;
+        for (byte[] pattern : patterns) {
+            for (byte b : pattern) {
+                if (byteClass[b & 0xff] == 0) {
+                    byteClass[b & 0xff] = classes;
+                    if (ignoreAsciiCase && SubstringMatcher.caseMask(b) != 0) {
+                        byteClass[(b & ~0x20) & 0xff] = classes;
+                    }
+                    classes++;
+                }
+            }
+            totalLength += pattern.length;
+        }
+        if (totalLength >= Integer.MAX_VALUE - 8) {
+            throw new IllegalArgumentException("./mygrep: too many patterns: " + patterns.size());
+        }
+        this.classCount = classes;
+
+        // Patterns as class sequences (class - 1, so that it fits a byte), sorted so that the patterns
+        // sharing a prefix are neighbours and every state's children are created in class order.
+        List<byte[]> sorted = new ArrayList<>(patterns.size());
+        for (byte[] pattern : patterns) {
+            byte[] mapped = new byte[pattern.length];
+            for (int i = 0; i < pattern.length; i++) {
+                mapped[i] = (byte) (byteClass[pattern[i] & 0xff] - 1);
+            }
+            sorted.add(mapped);
+        }
+        sorted.sort(Arrays::compareUnsigned);
+
+        int[] parent = new int[(int) totalLength + 1];
+        int[] label = new int[parent.length];
+        int[] terminalLength = new int[parent.length];
+        int states = 1;
+        int[] path = new int[1];
+        byte[] previous = new byte[0];
+        for (byte[] pattern : sorted) {
+            int shared = Arrays.mismatch(previous, pattern);
+            if (shared < 0) {
+                shared = pattern.length;
+            }
+            if (path.length < pattern.length + 1) {
+                path = Arrays.copyOf(path, pattern.length + 1);
+            }
+            for (int i = shared; i < pattern.length; i++) {
+                parent[states] = path[i];
+                label[states] = (pattern[i] & 0xff) + 1;
+                path[i + 1] = states++;
+            }
+            terminalLength[path[pattern.length]] = pattern.length;
+            previous = pattern;
+        }
+
+        // States were numbered depth first with each state's children in class order, so counting them
+        // per parent gives the children of every state as one sorted run.
+        int[] start = new int[states + 1];
+        for (int s = 1; s < states; s++) {
+            start[parent[s] + 1]++;
+        }
+        for (int s = 0; s < states; s++) {
+            start[s + 1] += start[s];
+        }
+        int[] labels = new int[states - 1];
+        int[] children = new int[states - 1];
+        int[] filled = Arrays.copyOf(start, states);
+        for (int s = 1; s < states; s++) {
+            int slot = filled[parent[s]]++;
+            labels[slot] = label[s];
+            children[slot] = s;
+        }
+
+        int[] failure = new int[states];
+        int[] output = new int[states];
+        int[] queue = new int[states];
+        int head = 0;
+        int tail = 0;
+        queue[tail++] = 0;
+        while (head < tail) {
+            int state = queue[head++];
+            for (int i = start[state]; i < start[state + 1]; i++) {
+                int child = children[i];
+                if (state != 0) {
+                    int f = failure[state];
+                    int next = child(start, labels, children, f, labels[i]);
+                    while (next < 0 && f != 0) {
+                        f = failure[f];
+                        next = child(start, labels, children, f, labels[i]);
+                    }
+                    failure[child] = Math.max(next, 0);
+                }
+                output[child] = terminalLength[child] != 0 ? terminalLength[child] : output[failure[child]];
+                queue[tail++] = child;
+            }
+        }
+        this.matchLength = output;
+
+        if ((long) states * classes > denseTableLimit) {
+            this.transitions = null;
+            this.childStart = start;
+            this.childLabel = labels;
+            this.childState = children;
+            this.fail = failure;
+            return;
+        }
+
+        // Going breadth first, the row of a state's failure target is complete before the state's own row.
+        int[] delta = new int[Math.multiplyExact(states, classes)];
+        for (int q = 0; q < states; q++) {
+            int state = queue[q];
+            int row = state * classes;
+            if (state != 0) {
+                System.arraycopy(delta, failure[state] * classes, delta, row, classes);
+            }
+            for (int i = start[state]; i < start[state + 1]; i++) {
+                delta[row + labels[i]] = children[i];
+            }
+        }
+        this.transitions = delta;
+        this.childStart = null;
+        this.childLabel = null;
+        this.childState = null;
+        this.fail = null;
+    }
+
+    // The child of state along the class, or -1.
+    private static int child(int[] start, int[] labels, int[] children, int state, int cls) {
+        int i = Arrays.binarySearch(labels, start[state], start[state + 1], cls);
+        return i >= 0 ? children[i] : -1;
+    }
+
+    @Override
+    public long find(MemorySegment haystack, long from, long to) {
+        if (transitions == null) {
+            return findSparse(haystack, from, to);
+        }
+        int state = 0;
+        for (long i = from; i < to; i++) {
+            int b = haystack.get(ValueLayout.JAVA_BYTE, i) & 0xff;
+            state = transitions[state * classCount + byteClass[b]];
+            if (matchLength[state] != 0) {
+                return i - matchLength[state] + 1;
+            }
+        }
+        return -1;
+    }
+
+    private long findSparse(MemorySegment haystack, long from, long to) {
+        int state = 0;
+        for (long i = from; i < to; i++) {
+            int cls = byteClass[haystack.get(ValueLayout.JAVA_BYTE, i) & 0xff];
+            if (cls == 0) {
+                // No pattern has this byte, so no match can continue across it.
+                state = 0;
+                continue;
+            }
+            int next = child(childStart, childLabel, childState, state, cls);
+            while (next < 0 && state != 0) {
+                state = fail[state];
+                next = child(childStart, childLabel, childState, state, cls);
+            }
+            state = Math.max(next, 0);
+            if (matchLength[state] != 0) {
+                return i - matchLength[state] + 1;
+            }
+        }
+        return -1;
+    }
+}
@@ -1,6 +1,8 @@
 package org.example;
 
+import java.nio.charset.Charset;
 import java.util.ArrayList;
+import java.util.Arrays;
 import java.util.Collections;
 import java.util.List;
 
@@ -8,16 +10,16 @@ public class ArgumentParser {
 
     public static GrepOptions parse(String[] args) throws IllegalArgumentException {
         if (args.length == 0) {
-            throw new IllegalArgumentException("Usage: ./mygrep [-i] \"search_string\" [filename] [-o output_file]");
+            throw new IllegalArgumentException(
+                    "Usage: ./mygrep [-i] [-E] [-r] [-l] [-c] [-q] [-n] [-b] [-z] [-m num] [-A num] [-B num] [-C num] [-e pattern]... [-f file] [--mmap=auto|always|never] [--binary-files=binary|text|without-match] [--encoding=charset] [--no-ignore] \"search_string\" [filename] [-o output_file]");
         }
 
         List<String> argList = new ArrayList<>();
         Collections.addAll(argList, args);
 
-        boolean caseInsensitive = false;
-        String searchString = null;
-        String inputFile = null;
-        String outputFile = null;
+        GrepOptions.Builder builder = GrepOptions.builder();
+        boolean explicitPatterns = false;
+        List<String> positionals = new ArrayList<>();
 
         int i = 0;
 
@@ -25,29 +27,140 @@ public class ArgumentParser {
             String arg = argList.get(i);
 
             if ("-i".equals(arg)) {
-                caseInsensitive = true;
+                builder.caseInsensitive(true);
                 i++;
+            } else if ("-E".equals(arg)) {
+                builder.extendedRegex(true);
+                i++;
+            } else if ("-r".equals(arg)) {
+                builder.recursive(true);
+                i++;
+            } else if ("-l".equals(arg)) {
+                builder.listFiles(true);
+                i++;
+            } else if ("-c".equals(arg)) {
+                builder.countLines(true);
+                i++;
+            } else if ("-q".equals(arg)) {
+                builder.quiet(true);
+                i++;
+            } else if ("-n".equals(arg)) {
+                builder.lineNumbers(true);
+                i++;
+            } else if ("-b".equals(arg)) {
+                builder.byteOffsets(true);
+                i++;
+            } else if ("-z".equals(arg)) {
+                builder.decompress(true);
+                i++;
+            } else if ("-m".equals(arg)) {
+                builder.maxCount(parseMaxCount(requireValue(argList, i, 'm')));
+                i += 2;
+            } else if ("-A".equals(arg)) {
+                builder.afterContext(parseContext(requireValue(argList, i, 'A')));
+                i += 2;
+            } else if ("-B".equals(arg)) {
+                builder.beforeContext(parseContext(requireValue(argList, i, 'B')));
+                i += 2;
+            } else if ("-C".equals(arg)) {
+                builder.context(parseContext(requireValue(argList, i, 'C')));
+                i += 2;
             } else if ("-o".equals(arg)) {
-                if (i + 1 >= argList.size()) {
-                    throw new IllegalArgumentException("./mygrep: option requires an argument -- 'o'");
+                builder.outputFile(requireValue(argList, i, 'o'));
+                i += 2;
+            } else if ("-e".equals(arg)) {
+                // As in grep, a newline inside a pattern separates two patterns.
+                for (String pattern : requireValue(argList, i, 'e').split("\n")) {
+                    builder.addPattern(pattern);
                 }
-                outputFile = argList.get(i + 1);
+                explicitPatterns = true;
                 i += 2;
-            } else if (searchString == null) {
-                searchString = arg;
+            } else if ("-f".equals(arg)) {
+                builder.patternFile(requireValue(argList, i, 'f'));
+                explicitPatterns = true;
+                i += 2;
+            } else if ("--no-ignore".equals(arg)) {
+                builder.noIgnore(true);
+                i++;
+            } else if (arg.startsWith("--mmap=")) {
+                builder.mmapMode(MmapMode.parse(arg.substring("--mmap=".length())));
                 i++;
-            } else if (inputFile == null) {
-                inputFile = arg;
+            } else if (arg.startsWith("--encoding=")) {
+                builder.encoding(parseEncoding(arg.substring("--encoding=".length())));
+                i++;
+            } else if (arg.startsWith("--binary-files=")) {
+                builder.binaryFiles(BinaryFiles.parse(arg.substring("--binary-files=".length())));
                 i++;
             } else {
-                throw new IllegalArgumentException("./mygrep: unexpected argument: " + arg);
+                positionals.add(arg);
+                i++;
             }
         }
 
-        if (searchString == null) {
-            throw new IllegalArgumentException("./mygrep: search string is required");
+        // With -e or -f every positional argument is an input, otherwise the first one is the pattern.
+        int next = 0;
+        if (!explicitPatterns) {
+            if (positionals.isEmpty()) {
+                throw new IllegalArgumentException("./mygrep: search string is required");
+            }
+            builder.searchString(positionals.get(next++));
+        }
+        if (next < positionals.size()) {
+            builder.inputPath(positionals.get(next++));
+        } else if (builder.isRecursive()) {
+            // Like grep -r, search the working directory when no path is given
+            builder.inputPath(".");
+        }
+        if (next < positionals.size()) {
+            throw new IllegalArgumentException("./mygrep: unexpected argument: " + positionals.get(next));
         }
 
-        return new GrepOptions(searchString, inputFile, outputFile, caseInsensitive);
+        return builder.build();
+    }
+
+    private static long parseMaxCount(String value) {
+        try {
+            long maxCount = Long.parseLong(value);
+            // As in grep, a negative count means no limit
+            return maxCount < 0 ? -1 : maxCount;
+        } catch (NumberFormatException e) {
+            throw new IllegalArgumentException("./mygrep: invalid max count");
+        }
+    }
+
+    // Lines are split at the byte '\n', so only charsets that encode a newline as that byte and use it for
+    // nothing else can be searched without decoding: UTF-8, ISO-8859-*, the Windows code pages, EUC-*,
+    // Shift_JIS and the like. UTF-16 and UTF-32 encode a newline in several bytes and are rejected.
+    private static Charset parseEncoding(String value) {
+        Charset charset;
+        try {
+            charset = Charset.forName(value);
+        } catch (IllegalArgumentException e) {
+            throw new IllegalArgumentException("./mygrep: unknown encoding '" + value + "'");
+        }
+        if (!charset.canEncode() || !Arrays.equals("\n".getBytes(charset), new byte[]{'\n'})) {
+            throw new IllegalArgumentException("./mygrep: encoding '" + value + "' is not supported:"
+                    + " lines must end with a single '\\n' byte");
+        }
+        return charset;
+    }
+
+    private static int parseContext(String value) {
+        try {
+            int lines = Integer.parseInt(value);
+            if (lines >= 0) {
+                return lines;
+            }
+        } catch (NumberFormatException e) {
+            // Reported below
+        }
+        throw new IllegalArgumentException("./mygrep: " + value + ": invalid context length argument");
+    }
+
+    private static String requireValue(List<String> argList, int i, char option) {
+        if (i + 1 >= argList.size()) {
+            throw new IllegalArgumentException("./mygrep: option requires an argument -- '" + option + "'");
+        }
+        return argList.get(i + 1);
     }
 }
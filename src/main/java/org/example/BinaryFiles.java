@@ -0,0 +1,20 @@
+package org.example;
+
+import java.util.Locale;
+
+// What to do with an input that has a NUL byte in its first block, as with grep's --binary-files:
+// report only that it matches (BINARY), search it like any other input (TEXT), or skip it (WITHOUT_MATCH).
+public enum BinaryFiles {
+    BINARY,
+    TEXT,
+    WITHOUT_MATCH;
+
+    public static BinaryFiles parse(String value) {
+        try {
+            return valueOf(value.toUpperCase(Locale.ROOT).replace('-', '_'));
+        } catch (IllegalArgumentException e) {
+            throw new IllegalArgumentException("./mygrep: invalid argument '" + value + "' for '--binary-files'"
+                    + " (valid arguments are 'binary', 'text', 'without-match')");
+        }
+    }
+}
@@ -0,0 +1,10 @@
+package org.example;
+
+import java.lang.foreign.MemorySegment;
+
+public interface ByteMatcher {
+
+    // Returns the offset of the first match starting in [from, to), or -1 if there is none. Matchers
+    // that decide whole lines at a time may return any offset inside the first matching line.
+    long find(MemorySegment haystack, long from, long to);
+}
@@ -0,0 +1,89 @@
+package org.example;
+
+import java.lang.foreign.MemorySegment;
+import java.lang.foreign.ValueLayout;
+
+public class ByteScan {
+
+    public static final byte NEWLINE = '\n';
+
+    private static final ValueLayout.OfLong UNALIGNED_LONG = ValueLayout.JAVA_LONG_UNALIGNED;
+    private static final long NEWLINES = 0x0a0a0a0a0a0a0a0aL;
+    private static final long LOW_SEVEN_BITS = 0x7f7f7f7f7f7f7f7fL;
+    private static final long LOW_BITS = 0x0101010101010101L;
+    private static final long HIGH_BITS = 0x8080808080808080L;
+
+    public static long indexOf(MemorySegment segment, byte value, long from, long to) {
+        for (long i = from; i < to; i++) {
+            if (segment.get(ValueLayout.JAVA_BYTE, i) == value) {
+                return i;
+            }
+        }
+        return -1;
+    }
+
+    public static long lastIndexOf(MemorySegment segment, byte value, long from, long to) {
+        for (long i = to - 1; i >= from; i--) {
+            if (segment.get(ValueLayout.JAVA_BYTE, i) == value) {
+                return i;
+            }
+        }
+        return -1;
+    }
+
+    // Start of the line containing pos, never before from (which must itself be a line start).
+    public static long lineStart(MemorySegment segment, long from, long pos) {
+        long newline = lastIndexOf(segment, NEWLINE, from, pos);
+        return newline < 0 ? from : newline + 1;
+    }
+
+    // Offset of the newline ending the line containing pos, or to if the line is unterminated.
+    public static long lineEnd(MemorySegment segment, long pos, long to) {
+        long newline = indexOf(segment, NEWLINE, pos, to);
+        return newline < 0 ? to : newline;
+    }
+
+    // Whether [from, to) contains a NUL byte. (x - 0x0101...) & ~x sets the high bit of the lowest zero byte
+    // of x and possibly of higher ones, but of none if x has no zero byte.
+    public static boolean containsNul(MemorySegment segment, long from, long to) {
+        long pos = from;
+        for (; pos + Long.BYTES <= to; pos += Long.BYTES) {
+            long x = segment.get(UNALIGNED_LONG, pos);
+            if (((x - LOW_BITS) & ~x & HIGH_BITS) != 0) {
+                return true;
+            }
+        }
+        for (; pos < to; pos++) {
+            if (segment.get(ValueLayout.JAVA_BYTE, pos) == 0) {
+                return true;
+            }
+        }
+        return false;
+    }
+
+    // Number of newlines in [from, to), for line numbers that are only worked out when a line is printed.
+    public static long countNewlines(MemorySegment segment, long from, long to) {
+        if (SubstringMatcher.VECTOR_ENABLED) {
+            return VectorNewlineCounter.count(segment, from, to);
+        }
+        return countNewlinesScalar(segment, from, to);
+    }
+
+    // Eight bytes at a time: a byte of x ^ 0x0a0a... is zero exactly where there is a newline, and the
+    // arithmetic below sets the high bit of every zero byte and of no other, so a popcount counts them.
+    static long countNewlinesScalar(MemorySegment segment, long from, long to) {
+        long count = 0;
+        long pos = from;
+        for (; pos + Long.BYTES <= to; pos += Long.BYTES) {
+            long x = segment.get(UNALIGNED_LONG, pos) ^ NEWLINES;
+            long nonZero = ((x & LOW_SEVEN_BITS) + LOW_SEVEN_BITS) | x;
+            count += Long.bitCount(~(nonZero | LOW_SEVEN_BITS));
+        }
+        for (; pos < to; pos++) {
+            if (segment.get(ValueLayout.JAVA_BYTE, pos) == NEWLINE) {
+                count++;
+            }
+        }
+        return count;
+    }
+}
@@ -0,0 +1,111 @@
+package org.example;
+
+import java.lang.foreign.MemorySegment;
+import java.lang.foreign.ValueLayout;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Locale;
+
+// Case-insensitive matching with String.toLowerCase(Locale.ROOT) semantics. Patterns that fold to
+// ASCII are matched directly on the bytes; a line is only decoded when it contains a non-ASCII
+// sequence that could fold into the pattern.
+public class CaseFoldMatcher implements ByteMatcher {
+    private final List<String> foldedPatterns;
+    private final ByteMatcher asciiMatcher;
+    private final ByteMatcher slowPathTrigger;
+
+    private CaseFoldMatcher(List<String> foldedPatterns, ByteMatcher asciiMatcher, ByteMatcher slowPathTrigger) {
+        this.foldedPatterns = foldedPatterns;
+        this.asciiMatcher = asciiMatcher;
+        this.slowPathTrigger = slowPathTrigger;
+    }
+
+    public static ByteMatcher compile(String pattern) {
+        return compile(List.of(pattern));
+    }
+
+    public static ByteMatcher compile(List<String> patterns) {
+        List<String> folded = new ArrayList<>();
+        List<byte[]> asciiPatterns = new ArrayList<>();
+        boolean anyNonAscii = false;
+        boolean asciiFoldingHazard = false;
+
+        for (String pattern : patterns) {
+            String f = pattern.toLowerCase(Locale.ROOT);
+            folded.add(f);
+            if (isAscii(f)) {
+                asciiPatterns.add(f.getBytes(StandardCharsets.US_ASCII));
+                // KELVIN SIGN (E2 84 AA) lower-cases to 'k' and LATIN CAPITAL LETTER I WITH DOT ABOVE
+                // (C4 B0) to "i̇"; they are the only non-ASCII characters whose lower case contains ASCII.
+                asciiFoldingHazard |= f.indexOf('k') >= 0 || f.indexOf('i') >= 0;
+            } else {
+                anyNonAscii = true;
+            }
+        }
+
+        ByteMatcher asciiMatcher = SubstringMatcher.compileAll(asciiPatterns, true);
+        if (anyNonAscii) {
+            // Lower-casing maps ASCII to ASCII, so only lines with non-ASCII bytes can match these.
+            return new CaseFoldMatcher(folded, asciiMatcher, CaseFoldMatcher::findNonAscii);
+        }
+        if (asciiFoldingHazard) {
+            return new CaseFoldMatcher(folded, asciiMatcher, CaseFoldMatcher::findAsciiFoldingLeadByte);
+        }
+        return asciiMatcher;
+    }
+
+    @Override
+    public long find(MemorySegment haystack, long from, long to) {
+        long fast = asciiMatcher.find(haystack, from, to);
+        long limit = fast < 0 ? to : fast;
+        long pos = from;
+
+        while (pos < limit) {
+            long trigger = slowPathTrigger.find(haystack, pos, limit);
+            if (trigger < 0) {
+                break;
+            }
+
+            long lineStart = ByteScan.lineStart(haystack, from, trigger);
+            long lineEnd = ByteScan.lineEnd(haystack, trigger, to);
+
+            String line = GrepService.decodeLine(haystack, lineStart, lineEnd).toLowerCase(Locale.ROOT);
+            for (String pattern : foldedPatterns) {
+                if (line.contains(pattern)) {
+                    return trigger;
+                }
+            }
+            pos = lineEnd + 1;
+        }
+        return fast;
+    }
+
+    private static boolean isAscii(String s) {
+        for (int i = 0; i < s.length(); i++) {
+            if (s.charAt(i) >= 0x80) {
+                return false;
+            }
+        }
+        return true;
+    }
+
+    private static long findNonAscii(MemorySegment haystack, long from, long to) {
+        for (long i = from; i < to; i++) {
+            if (haystack.get(ValueLayout.JAVA_BYTE, i) < 0) {
+                return i;
+            }
+        }
+        return -1;
+    }
+
+    private static long findAsciiFoldingLeadByte(MemorySegment haystack, long from, long to) {
+        for (long i = from; i < to; i++) {
+            byte b = haystack.get(ValueLayout.JAVA_BYTE, i);
+            if (b == (byte) 0xE2 || b == (byte) 0xC4) {
+                return i;
+            }
+        }
+        return -1;
+    }
+}
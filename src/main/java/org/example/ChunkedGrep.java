@@ -0,0 +1,151 @@
+package org.example;
+
+import java.io.IOException;
+import java.lang.foreign.MemorySegment;
+import java.util.ArrayDeque;
+import java.util.Arrays;
+import java.util.Deque;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.ForkJoinTask;
+import java.util.concurrent.atomic.AtomicBoolean;
+
+// Searches one large segment on several threads. The segment is cut into chunks that end at line boundaries,
+// the chunks are searched on a ForkJoinPool, and their matches are handed to the sink in input order from the
+// calling thread, so the sink gets the same calls as from a sequential search of the whole segment. As in
+// ParallelGrep, at most maxInFlight chunks are searched or waiting to be handed over at any time.
+// For a sink that prints line numbers, every chunk also counts its newlines on the pool; a match's number is
+// then the newlines of the chunks before it plus those within its own chunk, passed on with knownLineNumber().
+// The segment must be readable from the pool's threads, i.e. mapped in a shared arena.
+public class ChunkedGrep {
+
+    public static final long DEFAULT_CHUNK_SIZE = 8 * 1024 * 1024;
+
+    public static void grep(ByteMatcher matcher, MemorySegment content, MatchSink sink) throws IOException {
+        ForkJoinPool pool = ForkJoinPool.commonPool();
+        grep(matcher, content, sink, pool, DEFAULT_CHUNK_SIZE, pool.getParallelism() * 4);
+    }
+
+    // Once the sink is done, chunks not yet started are never submitted and running ones stop at their next
+    // check. All of them have finished reading the segment when this returns.
+    public static void grep(ByteMatcher matcher, MemorySegment content, MatchSink sink, ForkJoinPool pool,
+                            long chunkSize, int maxInFlight) throws IOException {
+        long end = content.byteSize();
+        if (GrepService.isBinary(content, end)) {
+            sink.binaryInput();
+        }
+        boolean countOnly = sink.isCountOnly();
+        boolean numberLines = !countOnly && sink.needsLineNumbers();
+        AtomicBoolean stopped = new AtomicBoolean();
+        Deque<ForkJoinTask<Chunk>> pending = new ArrayDeque<>();
+        long next = 0;
+        long linesBefore = 0;
+
+        try {
+            while (!sink.isDone()) {
+                while (pending.size() < maxInFlight && next < end) {
+                    long chunkEnd = end;
+                    if (end - next > chunkSize) {
+                        chunkEnd = Math.min(end, ByteScan.lineEnd(content, next + chunkSize - 1, end) + 1);
+                    }
+                    Chunk chunk = new Chunk(next, chunkEnd, countOnly, numberLines, stopped);
+                    pending.add(pool.submit(() -> chunk.search(matcher, content)));
+                    next = chunkEnd;
+                }
+                if (pending.isEmpty()) {
+                    break;
+                }
+                Chunk chunk = pending.removeFirst().join();
+                chunk.replay(content, sink, linesBefore);
+                linesBefore += chunk.newlines;
+                sink.flushIfDue();
+            }
+        } finally {
+            stopped.set(true);
+            for (ForkJoinTask<Chunk> task : pending) {
+                task.quietlyJoin();
+            }
+        }
+        sink.endOfContent(content, true);
+    }
+
+    // Matches of one chunk as offsets into the whole segment, or only their number for a count-only sink.
+    // With line numbers, each match also records the newlines between the chunk start and its line.
+    private static final class Chunk implements MatchSink {
+        private final long start;
+        private final long end;
+        private final boolean countOnly;
+        private final boolean numberLines;
+        private final AtomicBoolean stopped;
+        private long[] lineBounds = new long[0];
+        private long[] linesBeforeMatch = new long[0];
+        private int matchCount;
+        private long countedLines;
+        private long countedUpTo;
+        private long newlines;
+
+        Chunk(long start, long end, boolean countOnly, boolean numberLines, AtomicBoolean stopped) {
+            this.start = start;
+            this.end = end;
+            this.countOnly = countOnly;
+            this.numberLines = numberLines;
+            this.stopped = stopped;
+        }
+
+        Chunk search(ByteMatcher matcher, MemorySegment content) throws IOException {
+            MemorySegment chunk = content.asSlice(start, end - start);
+            GrepService.grep(matcher, chunk, this);
+            if (numberLines) {
+                newlines += ByteScan.countNewlines(chunk, countedUpTo, chunk.byteSize());
+            }
+            return this;
+        }
+
+        @Override
+        public void accept(MemorySegment chunk, long lineStart, long lineEnd) {
+            if (2 * matchCount + 2 > lineBounds.length) {
+                lineBounds = Arrays.copyOf(lineBounds, Math.max(16, lineBounds.length * 2));
+            }
+            lineBounds[2 * matchCount] = start + lineStart;
+            lineBounds[2 * matchCount + 1] = start + lineEnd;
+            if (numberLines) {
+                if (matchCount == linesBeforeMatch.length) {
+                    linesBeforeMatch = Arrays.copyOf(linesBeforeMatch, Math.max(8, matchCount * 2));
+                }
+                newlines += ByteScan.countNewlines(chunk, countedUpTo, lineStart);
+                countedUpTo = lineStart;
+                linesBeforeMatch[matchCount] = newlines;
+            }
+            matchCount++;
+        }
+
+        @Override
+        public boolean isCountOnly() {
+            return countOnly;
+        }
+
+        @Override
+        public void countLine() {
+            countedLines++;
+        }
+
+        @Override
+        public boolean isDone() {
+            return stopped.get();
+        }
+
+        void replay(MemorySegment content, MatchSink sink, long linesBefore) throws IOException {
+            if (countOnly) {
+                for (long i = 0; i < countedLines && !sink.isDone(); i++) {
+                    sink.countLine();
+                }
+                return;
+            }
+            for (int i = 0; i < matchCount && !sink.isDone(); i++) {
+                if (numberLines) {
+                    sink.knownLineNumber(lineBounds[2 * i], linesBefore + linesBeforeMatch[i] + 1);
+                }
+                sink.accept(content, lineBounds[2 * i], lineBounds[2 * i + 1]);
+            }
+        }
+    }
+}
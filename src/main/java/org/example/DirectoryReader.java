@@ -11,6 +11,33 @@ import java.util.stream.Stream;
 public class DirectoryReader {
 
     public static List<Path> listFilesRecursively(String directoryPath) throws IOException {
+        Path path = checkDirectory(directoryPath);
+
+        try (Stream<Path> paths = Files.walk(path)) {
+            List<Path> files = paths
+                    .filter(Files::isRegularFile)
+                    .filter(Files::isReadable)
+                    .sorted() // Sort for consistent output
+                    .collect(Collectors.toList());
+
+            return files;
+        }
+    }
+
+    // Streams the files of the tree while it is still being walked; close the walker when done.
+    public static DirectoryWalker walkFilesRecursively(String directoryPath) throws IOException {
+        return new DirectoryWalker(checkDirectory(directoryPath));
+    }
+
+    // Without ignore rules every file of the tree is walked, including those in .git. The excluded file, if
+    // not null, is never handed out.
+    public static DirectoryWalker walkFilesRecursively(String directoryPath, boolean ignoreRules, Path excluded)
+            throws IOException {
+        Path path = checkDirectory(directoryPath);
+        return new DirectoryWalker(path, ignoreRules ? IgnoreRules.defaults(path) : IgnoreRules.NONE, excluded);
+    }
+
+    private static Path checkDirectory(String directoryPath) throws IOException {
         Path path = Path.of(directoryPath);
 
         if (!Files.exists(path)) {
@@ -25,15 +52,7 @@ public class DirectoryReader {
             throw new IOException("Directory is not readable: " + directoryPath);
         }
 
-        try (Stream<Path> paths = Files.walk(path)) {
-            List<Path> files = paths
-                    .filter(Files::isRegularFile)
-                    .filter(Files::isReadable)
-                    .sorted() // Sort for consistent output
-                    .collect(Collectors.toList());
-
-            return files;
-        }
+        return path;
     }
 
     public static boolean isDirectory(String path) {
@@ -0,0 +1,326 @@
+package org.example;
+
+import java.io.IOException;
+import java.nio.file.DirectoryIteratorException;
+import java.nio.file.DirectoryStream;
+import java.nio.file.Files;
+import java.nio.file.LinkOption;
+import java.nio.file.Path;
+import java.nio.file.attribute.BasicFileAttributes;
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.Deque;
+import java.util.Iterator;
+import java.util.List;
+import java.util.NoSuchElementException;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.Semaphore;
+
+// Walks a directory tree and hands out its readable regular files while the walk is still in progress.
+// Directories are listed ahead of the walk on a work-stealing pool, so they are usually ready by the time
+// the walk reaches them: the next subdirectories of every directory the walk is in, and, as soon as one of
+// those has been listed, its own first subdirectories, which lets a deep tree be listed ahead as well.
+// At most maxListingsAhead listings are running or waiting for the walk at any time, however wide the
+// tree, which bounds the memory they hold.
+//
+// Files are emitted depth first with each directory's entries sorted by name, a directory's name taken with
+// its trailing '/', so the order is that of sorting the paths of the whole tree (a.txt, a/b.txt, a0.txt)
+// without doing so, and a bounded queue keeps the walk from running far ahead of the consumer.
+//
+// Entries matched by the ignore rules (see IgnoreRules) are dropped while each directory is listed, so an
+// ignored directory is never opened, let alone walked. A directory's ignore files are read as part of its
+// own listing, which is why the rules of a subdirectory are only known once its parent has been listed.
+//
+// An excluded file, the -o output of the search, is left out like an ignored one, as grep never reads its
+// own output. It is recognised by its file key (device and inode), which is read for every entry anyway.
+public class DirectoryWalker implements Iterable<Path>, AutoCloseable {
+
+    public static final int DEFAULT_QUEUE_CAPACITY = 1024;
+    public static final int DEFAULT_LISTINGS_AHEAD = 256;
+
+    // Marks the end of the walk in the queue; compared by identity
+    private static final Path END = Path.of("");
+
+    private final Path root;
+    private final IgnoreRules ignoreRules;
+    private final ForkJoinPool pool;
+    private final BlockingQueue<Path> queue;
+    private final Semaphore listingsAhead;
+    private final Object excludedKey;
+    private final Path excludedPath;
+    private volatile Throwable failure;
+    private Thread walker;
+
+    public DirectoryWalker(Path root) {
+        this(root, IgnoreRules.defaults(root));
+    }
+
+    public DirectoryWalker(Path root, IgnoreRules ignoreRules) {
+        this(root, ignoreRules, Math.max(4, Runtime.getRuntime().availableProcessors()), DEFAULT_QUEUE_CAPACITY);
+    }
+
+    public DirectoryWalker(Path root, int parallelism, int queueCapacity) {
+        this(root, IgnoreRules.defaults(root), parallelism, queueCapacity);
+    }
+
+    public DirectoryWalker(Path root, IgnoreRules ignoreRules, int parallelism, int queueCapacity) {
+        this(root, ignoreRules, parallelism, queueCapacity, DEFAULT_LISTINGS_AHEAD);
+    }
+
+    public DirectoryWalker(Path root, IgnoreRules ignoreRules, Path excluded) {
+        this(root, ignoreRules, excluded, Math.max(4, Runtime.getRuntime().availableProcessors()),
+                DEFAULT_QUEUE_CAPACITY, DEFAULT_LISTINGS_AHEAD);
+    }
+
+    public DirectoryWalker(Path root, IgnoreRules ignoreRules, int parallelism, int queueCapacity,
+                           int maxListingsAhead) {
+        this(root, ignoreRules, null, parallelism, queueCapacity, maxListingsAhead);
+    }
+
+    // excluded may be null, or a file that need not exist.
+    public DirectoryWalker(Path root, IgnoreRules ignoreRules, Path excluded, int parallelism, int queueCapacity,
+                           int maxListingsAhead) {
+        BasicFileAttributes attributes = excluded == null ? null : readAttributes(excluded);
+        // Without file keys the file is recognised by its path, unless it is reached through a link
+        this.excludedKey = attributes == null ? null : attributes.fileKey();
+        this.excludedPath = attributes == null || excludedKey != null ? null : excluded.toAbsolutePath().normalize();
+        this.root = root;
+        this.ignoreRules = ignoreRules;
+        this.pool = new ForkJoinPool(parallelism);
+        this.queue = new ArrayBlockingQueue<>(queueCapacity);
+        this.listingsAhead = new Semaphore(maxListingsAhead);
+    }
+
+    // Can be iterated once; the walk starts with the first call.
+    @Override
+    public synchronized Iterator<Path> iterator() {
+        if (walker != null) {
+            throw new IllegalStateException("directory walk already started");
+        }
+        walker = Thread.ofVirtual().name("directory-walker").start(this::walk);
+        return new QueueIterator();
+    }
+
+    private void walk() {
+        try {
+            Deque<Level> stack = new ArrayDeque<>();
+            stack.push(list(root, ignoreRules));
+
+            while (!stack.isEmpty()) {
+                Level level = stack.peek();
+                if (level.next == level.entries.size()) {
+                    stack.pop();
+                    continue;
+                }
+
+                listAhead(level);
+                Entry entry = level.entries.get(level.next++);
+                if (entry.directory) {
+                    stack.push(enter(entry));
+                } else {
+                    queue.put(entry.path);
+                }
+            }
+        } catch (InterruptedException e) {
+            // The consumer stopped early and closed the walker
+            return;
+        } catch (RuntimeException | Error e) {
+            failure = e;
+        }
+
+        try {
+            queue.put(END);
+        } catch (InterruptedException e) {
+            // Closed while handing over the end marker; nobody is waiting for it
+        }
+    }
+
+    // The listing of a subdirectory the walk has reached, made now if it was not made ahead.
+    // Waits interruptibly: once the walker is closed, a listing dropped from the pool never completes.
+    private Level enter(Entry entry) throws InterruptedException {
+        if (entry.listing == null) {
+            return list(entry.path, entry.rules);
+        }
+        Level level;
+        try {
+            level = entry.listing.get();
+        } catch (ExecutionException e) {
+            if (e.getCause() instanceof RuntimeException runtimeException) {
+                throw runtimeException;
+            }
+            if (e.getCause() instanceof Error error) {
+                throw error;
+            }
+            throw new IllegalStateException(e.getCause());
+        }
+        entry.listing = null;
+        listingsAhead.release();
+        return level;
+    }
+
+    // Starts listing the next subdirectories of a directory as far as the limit allows. Runs on the walker for
+    // the directories it is in, and on the pool for a directory that has just been listed ahead, before the
+    // walker can see that listing.
+    private void listAhead(Level level) {
+        while (level.nextToList < level.entries.size()) {
+            Entry entry = level.entries.get(level.nextToList);
+            if (entry.directory) {
+                if (!listingsAhead.tryAcquire()) {
+                    return;
+                }
+                entry.listing = CompletableFuture.supplyAsync(() -> {
+                    Level listed = list(entry.path, entry.rules);
+                    listAhead(listed);
+                    return listed;
+                }, pool);
+            }
+            level.nextToList++;
+        }
+    }
+
+    // Directories that cannot be read are skipped, like unreadable files.
+    private boolean isExcluded(Path path, BasicFileAttributes attributes) {
+        if (excludedKey != null) {
+            return excludedKey.equals(attributes.fileKey());
+        }
+        return excludedPath != null && excludedPath.equals(path.toAbsolutePath().normalize());
+    }
+
+    private static BasicFileAttributes readAttributes(Path path) {
+        try {
+            return Files.readAttributes(path, BasicFileAttributes.class, LinkOption.NOFOLLOW_LINKS);
+        } catch (IOException e) {
+            // Removed between listing and reading its attributes
+            return null;
+        }
+    }
+
+    // The rules are those of the directory's parent; the directory's own ignore files are added to them.
+    private Level list(Path directory, IgnoreRules parentRules) {
+        List<Entry> entries = new ArrayList<>();
+        boolean hasGitignore = false;
+        boolean hasIgnore = false;
+        try (DirectoryStream<Path> stream = Files.newDirectoryStream(directory)) {
+            for (Path path : stream) {
+                BasicFileAttributes attributes = readAttributes(path);
+                if (attributes == null) {
+                    continue;
+                }
+                if (attributes.isDirectory()) {
+                    entries.add(new Entry(path, true));
+                } else if (attributes.isRegularFile() && Files.isReadable(path) && !isExcluded(path, attributes)) {
+                    // As with grep -r, symbolic links met during the walk are not followed
+                    entries.add(new Entry(path, false));
+                    String name = path.getFileName().toString();
+                    hasGitignore |= name.equals(IgnoreRules.GITIGNORE);
+                    hasIgnore |= name.equals(IgnoreRules.IGNORE);
+                }
+            }
+        } catch (IOException | DirectoryIteratorException e) {
+            // Unreadable, or failed partway through the listing
+            return new Level(List.of());
+        }
+
+        IgnoreRules rules = parentRules.forDirectory(directory, hasGitignore, hasIgnore);
+        entries.removeIf(entry -> rules.isIgnored(entry.path, entry.directory));
+        for (Entry entry : entries) {
+            entry.rules = rules;
+        }
+        entries.sort(Comparator.comparing(entry -> entry.sortKey));
+        return new Level(entries);
+    }
+
+    // Stops the walk and waits for the walker thread to end, which it does at its next wait.
+    @Override
+    public synchronized void close() {
+        pool.shutdownNow();
+        if (walker == null) {
+            return;
+        }
+        walker.interrupt();
+        try {
+            walker.join();
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+    }
+
+    private static final class Entry {
+        private final Path path;
+        private final boolean directory;
+        // The name as it sorts among the paths of the tree: a directory's contents come after "a.txt" or
+        // "a-b" and before "a0", as '/' sorts between '.' and '0'
+        private final String sortKey;
+        private IgnoreRules rules;
+        private CompletableFuture<Level> listing;
+
+        Entry(Path path, boolean directory) {
+            this.path = path;
+            this.directory = directory;
+            String name = path.getFileName().toString();
+            this.sortKey = directory ? name + "/" : name;
+        }
+    }
+
+    // The sorted entries of a directory, how far the walk has got through them, and how far their
+    // subdirectories have been listed ahead.
+    private static final class Level {
+        private final List<Entry> entries;
+        private int next;
+        private int nextToList;
+
+        Level(List<Entry> entries) {
+            this.entries = entries;
+        }
+    }
+
+    private final class QueueIterator implements Iterator<Path> {
+        private Path next;
+        private boolean done;
+
+        @Override
+        public boolean hasNext() {
+            if (next != null) {
+                return true;
+            }
+            if (done) {
+                return false;
+            }
+
+            try {
+                next = queue.take();
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+                throw new IllegalStateException("interrupted while walking " + root, e);
+            }
+
+            if (next == END) {
+                next = null;
+                done = true;
+                if (failure instanceof RuntimeException runtimeException) {
+                    throw runtimeException;
+                }
+                if (failure instanceof Error error) {
+                    throw error;
+                }
+                return false;
+            }
+            return true;
+        }
+
+        @Override
+        public Path next() {
+            if (!hasNext()) {
+                throw new NoSuchElementException();
+            }
+            Path path = next;
+            next = null;
+            return path;
+        }
+    }
+}
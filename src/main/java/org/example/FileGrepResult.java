@@ -1,14 +1,43 @@
 package org.example;
 
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.lang.foreign.Arena;
+import java.lang.foreign.MemorySegment;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.Arrays;
 import java.util.List;
 
 public class FileGrepResult {
     private final String filename;
     private final List<String> matchingLines;
 
+    // Compact form: start/end byte offsets of each matching line in the source file, in pairs
+    private final Path source;
+    private final long[] lineBounds;
+    private final int matchCount;
+
     public FileGrepResult(String filename, List<String> matchingLines) {
         this.filename = filename;
         this.matchingLines = matchingLines;
+        this.source = null;
+        this.lineBounds = null;
+        this.matchCount = matchingLines.size();
+    }
+
+    private FileGrepResult(Path source, long[] lineBounds, int matchCount) {
+        this.filename = source.toString();
+        this.matchingLines = null;
+        this.source = source;
+        this.lineBounds = lineBounds;
+        this.matchCount = matchCount;
+    }
+
+    // Keeps only where the matching lines are in the file; their text is read back from the file when it
+    // is asked for. The file is expected not to change in between.
+    public static FileGrepResult ofLineOffsets(Path source, long[] lineBounds, int matchCount) {
+        return new FileGrepResult(source, lineBounds, matchCount);
     }
 
     public String getFilename() {
@@ -16,14 +45,99 @@ public class FileGrepResult {
     }
 
     public List<String> getMatchingLines() {
-        return matchingLines;
+        if (matchingLines != null) {
+            return matchingLines;
+        }
+
+        List<String> lines = new ArrayList<>(matchCount);
+        try (Arena arena = Arena.ofConfined()) {
+            MemorySegment content = Main.mapFile(source, arena);
+            checkOffsets(content);
+            for (int i = 0; i < matchCount; i++) {
+                lines.add(GrepService.decodeLine(content, getLineStart(i), getLineEnd(i)));
+            }
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        } catch (GrepException e) {
+            throw new UncheckedIOException(new IOException(e.getMessage(), e));
+        }
+        return lines;
+    }
+
+    public boolean isCompact() {
+        return lineBounds != null;
+    }
+
+    public long getLineStart(int index) {
+        return lineBounds[2 * index];
+    }
+
+    public long getLineEnd(int index) {
+        return lineBounds[2 * index + 1];
+    }
+
+    // Writes "filename:line" for every match as bytes, without building Strings in the compact form.
+    public void writeTo(OutputWriter out) throws IOException, GrepException {
+        if (matchingLines != null) {
+            for (String line : matchingLines) {
+                out.writeLine(MultiFileGrep.formatLineWithFilename(filename, line));
+            }
+            return;
+        }
+
+        MatchSink sink = out.withPrefix(filename + ":");
+        try (Arena arena = Arena.ofConfined()) {
+            MemorySegment content = Main.mapFile(source, arena);
+            checkOffsets(content);
+            for (int i = 0; i < matchCount; i++) {
+                sink.accept(content, getLineStart(i), getLineEnd(i));
+            }
+            sink.endOfContent(content, true);
+        }
+    }
+
+    // The offsets only grow, so the last one tells whether the file is still long enough to hold them all.
+    private void checkOffsets(MemorySegment content) throws GrepException {
+        if (matchCount > 0 && getLineEnd(matchCount - 1) > content.byteSize()) {
+            throw new GrepException("./mygrep: " + filename + ": file shrank after it was searched");
+        }
     }
 
     public boolean hasMatches() {
-        return !matchingLines.isEmpty();
+        return matchCount > 0;
     }
 
     public int getMatchCount() {
-        return matchingLines.size();
+        return matchCount;
+    }
+
+    // Collects the offsets of matching lines into a compact result. Offsets are only meaningful when the
+    // searched content is the file itself, mapped or read from its start, whole or in consecutive blocks.
+    public static class OffsetCollector implements MatchSink {
+        private long[] lineBounds = new long[16];
+        private int count;
+        // Offset in the file of the current block
+        private long base;
+
+        @Override
+        public void accept(MemorySegment content, long lineStart, long lineEnd) {
+            if (2 * count + 2 > lineBounds.length) {
+                lineBounds = Arrays.copyOf(lineBounds, lineBounds.length * 2);
+            }
+            lineBounds[2 * count] = base + lineStart;
+            lineBounds[2 * count + 1] = base + lineEnd;
+            count++;
+        }
+
+        @Override
+        public void endOfContent(MemorySegment content, boolean endOfInput) {
+            if (!endOfInput) {
+                base += content.byteSize();
+            }
+        }
+
+        public FileGrepResult toResult(Path source) {
+            return ofLineOffsets(source, Arrays.copyOf(lineBounds, 2 * count), count);
+        }
     }
 }
@@ -0,0 +1,166 @@
+package org.example;
+
+import java.io.EOFException;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.PushbackInputStream;
+import java.lang.foreign.Arena;
+import java.lang.foreign.MemorySegment;
+import java.nio.ByteBuffer;
+import java.nio.channels.Channels;
+import java.nio.channels.FileChannel;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.Arrays;
+import java.util.Queue;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.zip.GZIPInputStream;
+import java.util.zip.ZipException;
+
+// Picks how a file is brought into memory before it is searched. Mapping has a fixed setup and teardown cost
+// that only pays off for large files, so small files are read into a pooled direct buffer instead. The pool
+// is shared rather than thread-local because a virtual thread per file would never reuse its own buffer.
+// Mapped files above the chunk threshold are split up and searched on several threads (see ChunkedGrep).
+// With decompression on, gzip files (recognised by their magic bytes, not their name) are inflated as a
+// stream straight into the search; nothing is written to disk or held beyond one block.
+public class FileSearcher {
+
+    public static final long DEFAULT_MMAP_THRESHOLD = 1024 * 1024;
+    public static final long DEFAULT_CHUNK_THRESHOLD = 64 * 1024 * 1024;
+    public static final long NO_CHUNKS = Long.MAX_VALUE;
+
+    private static final int INITIAL_BUFFER_SIZE = 64 * 1024;
+    private static final int GZIP_BUFFER_SIZE = 64 * 1024;
+    private static final byte[] GZIP_MAGIC = {0x1f, (byte) 0x8b};
+    private static final Queue<ByteBuffer> BUFFERS = new ConcurrentLinkedQueue<>();
+
+    private final MmapMode mode;
+    private final long mmapThreshold;
+    private final long chunkThreshold;
+    private final boolean decompress;
+
+    public FileSearcher(MmapMode mode) {
+        this(mode, DEFAULT_MMAP_THRESHOLD);
+    }
+
+    public FileSearcher(MmapMode mode, long mmapThreshold) {
+        this(mode, mmapThreshold, NO_CHUNKS);
+    }
+
+    public FileSearcher(MmapMode mode, long mmapThreshold, long chunkThreshold) {
+        this(mode, mmapThreshold, chunkThreshold, false);
+    }
+
+    public FileSearcher(MmapMode mode, long mmapThreshold, long chunkThreshold, boolean decompress) {
+        this.mode = mode;
+        this.mmapThreshold = mmapThreshold;
+        this.chunkThreshold = chunkThreshold;
+        this.decompress = decompress;
+    }
+
+    public void search(ByteMatcher matcher, Path path, MatchSink sink) throws IOException, GrepException {
+        // Pipes and devices have no size to decide on and cannot be mapped
+        if (!Files.isRegularFile(path)) {
+            try (InputStream input = Main.openFile(path)) {
+                searchStream(matcher, path, input, sink);
+            }
+            return;
+        }
+
+        try (FileChannel channel = Main.openChannel(path)) {
+            long size = channel.size();
+
+            if (decompress && isGzip(channel)) {
+                searchStream(matcher, path, Channels.newInputStream(channel), sink);
+                return;
+            }
+
+            if (shouldMap(size) && size > chunkThreshold) {
+                // The chunks are read by the pool's threads, so the mapping must be shared with them
+                try (Arena arena = Arena.ofShared()) {
+                    ChunkedGrep.grep(matcher, channel.map(FileChannel.MapMode.READ_ONLY, 0, size, arena), sink);
+                }
+            } else if (shouldMap(size)) {
+                try (Arena arena = Arena.ofConfined()) {
+                    GrepService.grep(matcher, channel.map(FileChannel.MapMode.READ_ONLY, 0, size, arena), sink);
+                }
+            } else if (size <= mmapThreshold) {
+                ByteBuffer buffer = borrowBuffer((int) size);
+                try {
+                    GrepService.grep(matcher, readFully(channel, buffer, (int) size), sink);
+                } finally {
+                    returnBuffer(buffer);
+                }
+            } else {
+                // Too large to buffer whole, but mapping was ruled out with --mmap=never
+                searchStream(matcher, path, Channels.newInputStream(channel), sink);
+            }
+        }
+    }
+
+    // A corrupt or truncated archive ends the search of that file like an unreadable one.
+    private void searchStream(ByteMatcher matcher, Path path, InputStream input, MatchSink sink)
+            throws IOException, GrepException {
+        try (InputStream source = decompress ? decompressIfGzip(input) : input) {
+            GrepService.grep(matcher, source, sink);
+        } catch (ZipException | EOFException e) {
+            throw new GrepException("./mygrep: " + path + ": " + e.getMessage());
+        }
+    }
+
+    private static boolean isGzip(FileChannel channel) throws IOException {
+        ByteBuffer magic = ByteBuffer.allocate(GZIP_MAGIC.length);
+        while (magic.hasRemaining() && channel.read(magic, magic.position()) >= 0) {
+            // Keep reading until the magic bytes are in or the file ends
+        }
+        return Arrays.equals(magic.array(), 0, magic.position(), GZIP_MAGIC, 0, GZIP_MAGIC.length);
+    }
+
+    // For inputs that can only be read once, such as stdin: the magic bytes are peeked and pushed back.
+    public static InputStream decompressIfGzip(InputStream input) throws IOException {
+        PushbackInputStream pushback = new PushbackInputStream(input, GZIP_MAGIC.length);
+        byte[] magic = new byte[GZIP_MAGIC.length];
+        int read = pushback.readNBytes(magic, 0, magic.length);
+        pushback.unread(magic, 0, read);
+        if (Arrays.equals(magic, 0, read, GZIP_MAGIC, 0, GZIP_MAGIC.length)) {
+            return new GZIPInputStream(pushback, GZIP_BUFFER_SIZE);
+        }
+        return pushback;
+    }
+
+    boolean shouldMap(long size) {
+        return switch (mode) {
+            case ALWAYS -> true;
+            case NEVER -> false;
+            case AUTO -> size > mmapThreshold;
+        };
+    }
+
+    // Whether search() reads the file whole into a pooled buffer, which is all a Prefetcher can load ahead.
+    boolean readsWhole(FileChannel channel) throws IOException {
+        long size = channel.size();
+        return !shouldMap(size) && size <= mmapThreshold && !(decompress && isGzip(channel));
+    }
+
+    static ByteBuffer borrowBuffer(int size) {
+        ByteBuffer buffer = BUFFERS.poll();
+        if (buffer == null) {
+            buffer = ByteBuffer.allocateDirect(Math.max(size, INITIAL_BUFFER_SIZE));
+        } else if (buffer.capacity() < size) {
+            buffer = ByteBuffer.allocateDirect(Math.max(size, buffer.capacity() * 2));
+        }
+        return buffer;
+    }
+
+    static void returnBuffer(ByteBuffer buffer) {
+        BUFFERS.offer(buffer);
+    }
+
+    static MemorySegment readFully(FileChannel channel, ByteBuffer buffer, int size) throws IOException {
+        buffer.clear().limit(size);
+        while (buffer.hasRemaining() && channel.read(buffer) >= 0) {
+            // The file may shrink while it is read; whatever arrived is searched
+        }
+        return MemorySegment.ofBuffer(buffer.flip());
+    }
+}
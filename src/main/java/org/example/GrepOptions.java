@@ -1,19 +1,41 @@
 package org.example;
 
+import java.nio.charset.Charset;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.List;
+
 public class GrepOptions {
     private final String searchString;
+    private final List<String> patterns;
+    private final String patternFile;
     private final String inputPath;
     private final String outputFile;
     private final boolean caseInsensitive;
+    private final boolean extendedRegex;
     private final boolean recursive;
+    private final MmapMode mmapMode;
+    private final boolean listFiles;
+    private final boolean quiet;
+    private final boolean countLines;
+    private final long maxCount;
+    private final int beforeContext;
+    private final int afterContext;
+    private final boolean lineNumbers;
+    private final boolean byteOffsets;
+    private final BinaryFiles binaryFiles;
+    private final Charset encoding;
+    private final boolean decompress;
+    private final boolean noIgnore;
 
     public GrepOptions(String searchString, String inputPath, String outputFile,
                        boolean caseInsensitive, boolean recursive) {
-        this.searchString = searchString;
-        this.inputPath = inputPath;
-        this.outputFile = outputFile;
-        this.caseInsensitive = caseInsensitive;
-        this.recursive = recursive;
+        this(builder()
+                .searchString(searchString)
+                .inputPath(inputPath)
+                .outputFile(outputFile)
+                .caseInsensitive(caseInsensitive)
+                .recursive(recursive));
     }
 
     public GrepOptions(String searchString, String inputPath, String outputFile, boolean caseInsensitive) {
@@ -24,10 +46,56 @@ public class GrepOptions {
         this(searchString, inputPath, outputFile, false, false);
     }
 
+    private GrepOptions(Builder builder) {
+        this.searchString = builder.searchString;
+        this.patterns = List.copyOf(builder.patterns);
+        this.patternFile = builder.patternFile;
+        this.inputPath = builder.inputPath;
+        this.outputFile = builder.outputFile;
+        this.caseInsensitive = builder.caseInsensitive;
+        this.extendedRegex = builder.extendedRegex;
+        this.recursive = builder.recursive;
+        this.mmapMode = builder.mmapMode;
+        this.listFiles = builder.listFiles;
+        this.quiet = builder.quiet;
+        this.countLines = builder.countLines;
+        this.maxCount = builder.maxCount;
+        // -A and -B take precedence over -C, whichever comes first
+        this.beforeContext = builder.beforeContext >= 0 ? builder.beforeContext : builder.context;
+        this.afterContext = builder.afterContext >= 0 ? builder.afterContext : builder.context;
+        this.lineNumbers = builder.lineNumbers;
+        this.byteOffsets = builder.byteOffsets;
+        this.binaryFiles = builder.binaryFiles;
+        this.encoding = builder.encoding;
+        this.decompress = builder.decompress;
+        this.noIgnore = builder.noIgnore;
+    }
+
+    public static Builder builder() {
+        return new Builder();
+    }
+
     public String getSearchString() {
         return searchString;
     }
 
+    // Patterns given with -e, or the positional search string when there are none.
+    // Patterns read from the -f file are not included.
+    public List<String> getPatterns() {
+        if (patterns.isEmpty() && searchString != null) {
+            return List.of(searchString);
+        }
+        return patterns;
+    }
+
+    public String getPatternFile() {
+        return patternFile;
+    }
+
+    public boolean hasPatternFile() {
+        return patternFile != null;
+    }
+
     public String getInputPath() {
         return inputPath;
     }
@@ -40,10 +108,76 @@ public class GrepOptions {
         return caseInsensitive;
     }
 
+    public boolean isExtendedRegex() {
+        return extendedRegex;
+    }
+
     public boolean isRecursive() {
         return recursive;
     }
 
+    public MmapMode getMmapMode() {
+        return mmapMode;
+    }
+
+    public boolean isListFiles() {
+        return listFiles;
+    }
+
+    public boolean isQuiet() {
+        return quiet;
+    }
+
+    public boolean isCountLines() {
+        return countLines;
+    }
+
+    // Matches to output per input with -m NUM, or -1 for no limit.
+    public long getMaxCount() {
+        return maxCount;
+    }
+
+    // Lines to print before each match with -B NUM (or -C NUM).
+    public int getBeforeContext() {
+        return beforeContext;
+    }
+
+    // Lines to print after each match with -A NUM (or -C NUM).
+    public int getAfterContext() {
+        return afterContext;
+    }
+
+    public boolean hasContext() {
+        return beforeContext > 0 || afterContext > 0;
+    }
+
+    public boolean isLineNumbers() {
+        return lineNumbers;
+    }
+
+    public boolean isByteOffsets() {
+        return byteOffsets;
+    }
+
+    public BinaryFiles getBinaryFiles() {
+        return binaryFiles;
+    }
+
+    // Charset of the input, which the patterns are encoded into before searching.
+    public Charset getEncoding() {
+        return encoding;
+    }
+
+    // Search gzip-compressed inputs decompressed, with -z.
+    public boolean isDecompress() {
+        return decompress;
+    }
+
+    // Walk every file of a recursive search, also those excluded by .gitignore and .ignore files.
+    public boolean isNoIgnore() {
+        return noIgnore;
+    }
+
     public boolean isStdinMode() {
         return inputPath == null;
     }
@@ -55,4 +189,147 @@ public class GrepOptions {
     public boolean isDirectoryMode() {
         return inputPath != null && DirectoryReader.isDirectory(inputPath);
     }
+
+    public static class Builder {
+        private String searchString;
+        private final List<String> patterns = new ArrayList<>();
+        private String patternFile;
+        private String inputPath;
+        private String outputFile;
+        private boolean caseInsensitive;
+        private boolean extendedRegex;
+        private boolean recursive;
+        private MmapMode mmapMode = MmapMode.AUTO;
+        private boolean listFiles;
+        private boolean quiet;
+        private boolean countLines;
+        private long maxCount = -1;
+        private int beforeContext = -1;
+        private int afterContext = -1;
+        private int context;
+        private boolean lineNumbers;
+        private boolean byteOffsets;
+        private BinaryFiles binaryFiles = BinaryFiles.BINARY;
+        private Charset encoding = StandardCharsets.UTF_8;
+        private boolean decompress;
+        private boolean noIgnore;
+
+        public Builder searchString(String searchString) {
+            this.searchString = searchString;
+            return this;
+        }
+
+        public Builder addPattern(String pattern) {
+            this.patterns.add(pattern);
+            return this;
+        }
+
+        public Builder patternFile(String patternFile) {
+            this.patternFile = patternFile;
+            return this;
+        }
+
+        public Builder inputPath(String inputPath) {
+            this.inputPath = inputPath;
+            return this;
+        }
+
+        public Builder outputFile(String outputFile) {
+            this.outputFile = outputFile;
+            return this;
+        }
+
+        public Builder caseInsensitive(boolean caseInsensitive) {
+            this.caseInsensitive = caseInsensitive;
+            return this;
+        }
+
+        public Builder extendedRegex(boolean extendedRegex) {
+            this.extendedRegex = extendedRegex;
+            return this;
+        }
+
+        public Builder recursive(boolean recursive) {
+            this.recursive = recursive;
+            return this;
+        }
+
+        boolean isRecursive() {
+            return recursive;
+        }
+
+        public Builder mmapMode(MmapMode mmapMode) {
+            this.mmapMode = mmapMode;
+            return this;
+        }
+
+        public Builder listFiles(boolean listFiles) {
+            this.listFiles = listFiles;
+            return this;
+        }
+
+        public Builder quiet(boolean quiet) {
+            this.quiet = quiet;
+            return this;
+        }
+
+        public Builder countLines(boolean countLines) {
+            this.countLines = countLines;
+            return this;
+        }
+
+        public Builder maxCount(long maxCount) {
+            this.maxCount = maxCount;
+            return this;
+        }
+
+        public Builder beforeContext(int beforeContext) {
+            this.beforeContext = beforeContext;
+            return this;
+        }
+
+        public Builder afterContext(int afterContext) {
+            this.afterContext = afterContext;
+            return this;
+        }
+
+        public Builder context(int context) {
+            this.context = context;
+            return this;
+        }
+
+        public Builder lineNumbers(boolean lineNumbers) {
+            this.lineNumbers = lineNumbers;
+            return this;
+        }
+
+        public Builder byteOffsets(boolean byteOffsets) {
+            this.byteOffsets = byteOffsets;
+            return this;
+        }
+
+        public Builder binaryFiles(BinaryFiles binaryFiles) {
+            this.binaryFiles = binaryFiles;
+            return this;
+        }
+
+        public Builder encoding(Charset encoding) {
+            this.encoding = encoding;
+            return this;
+        }
+
+        public Builder decompress(boolean decompress) {
+            this.decompress = decompress;
+            return this;
+        }
+
+        public Builder noIgnore(boolean noIgnore) {
+            this.noIgnore = noIgnore;
+            return this;
+        }
+
+        public GrepOptions build() {
+            return new GrepOptions(this);
+        }
+    }
 }
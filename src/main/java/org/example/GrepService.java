@@ -1,10 +1,26 @@
 package org.example;
 
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.UncheckedIOException;
+import java.lang.foreign.MemorySegment;
+import java.lang.foreign.ValueLayout;
+import java.nio.ByteBuffer;
+import java.nio.CharBuffer;
+import java.nio.charset.CharacterCodingException;
+import java.nio.charset.Charset;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.Arrays;
 import java.util.List;
+import java.util.Locale;
 import java.util.stream.Collectors;
 
 public class GrepService {
 
+    static final int STREAM_BLOCK_SIZE = 64 * 1024;
+    static final long DONE_CHECK_INTERVAL = 1024 * 1024;
+
     public static List<String> grep(String searchString, List<String> lines, boolean caseInsensitive) {
         if (caseInsensitive) {
             return grepCaseInsensitive(searchString, lines);
@@ -17,6 +33,232 @@ public class GrepService {
         return grep(searchString, lines, false);
     }
 
+    public static List<String> grep(String searchString, MemorySegment content, boolean caseInsensitive) {
+        return grep(List.of(searchString), content, caseInsensitive);
+    }
+
+    public static List<String> grep(List<String> patterns, MemorySegment content, boolean caseInsensitive) {
+        return grep(compile(patterns, caseInsensitive), content);
+    }
+
+    // Input in another charset is searched for the patterns encoded into that charset, so the input itself is
+    // never decoded. The regex engine and Unicode case folding work on UTF-8, so other charsets are limited
+    // to fixed strings, and with -i to ASCII ones.
+    public static ByteMatcher compile(List<String> patterns, boolean caseInsensitive, boolean extendedRegex,
+                                      Charset encoding) {
+        if (encoding.equals(StandardCharsets.UTF_8)) {
+            return compile(patterns, caseInsensitive, extendedRegex);
+        }
+        if (extendedRegex) {
+            throw new IllegalArgumentException("./mygrep: -E can only be used with UTF-8 input");
+        }
+
+        List<byte[]> encoded = new ArrayList<>();
+        for (String pattern : patterns) {
+            if (pattern.indexOf('\n') >= 0) {
+                continue;
+            }
+            if (caseInsensitive) {
+                String folded = pattern.toLowerCase(Locale.ROOT);
+                if (!StandardCharsets.US_ASCII.newEncoder().canEncode(folded)) {
+                    throw new IllegalArgumentException("./mygrep: -i with non-ASCII patterns needs UTF-8 input");
+                }
+                encoded.add(folded.getBytes(StandardCharsets.US_ASCII));
+            } else {
+                encoded.add(encodePattern(pattern, encoding));
+            }
+        }
+        return SubstringMatcher.compileAll(encoded, caseInsensitive);
+    }
+
+    private static byte[] encodePattern(String pattern, Charset encoding) {
+        try {
+            ByteBuffer bytes = encoding.newEncoder().encode(CharBuffer.wrap(pattern));
+            byte[] encoded = new byte[bytes.remaining()];
+            bytes.get(encoded);
+            return encoded;
+        } catch (CharacterCodingException e) {
+            throw new IllegalArgumentException(
+                    "./mygrep: pattern '" + pattern + "' cannot be encoded in " + encoding.name());
+        }
+    }
+
+    public static ByteMatcher compile(List<String> patterns, boolean caseInsensitive, boolean extendedRegex) {
+        if (extendedRegex) {
+            return RegexMatcher.compile(patterns, caseInsensitive);
+        }
+        return compile(patterns, caseInsensitive);
+    }
+
+    // A line matches if it contains any of the patterns. Patterns spanning a newline can never match a line.
+    public static ByteMatcher compile(List<String> patterns, boolean caseInsensitive) {
+        List<String> linePatterns = new ArrayList<>();
+        for (String pattern : patterns) {
+            if (pattern.indexOf('\n') < 0) {
+                linePatterns.add(pattern);
+            }
+        }
+
+        if (caseInsensitive) {
+            return CaseFoldMatcher.compile(linePatterns);
+        }
+
+        List<byte[]> encoded = new ArrayList<>();
+        for (String pattern : linePatterns) {
+            encoded.add(pattern.getBytes(StandardCharsets.UTF_8));
+        }
+        return SubstringMatcher.compileAll(encoded, false);
+    }
+
+    public static List<String> grep(ByteMatcher matcher, MemorySegment content) {
+        List<String> matchingLines = new ArrayList<>();
+        try {
+            grep(matcher, content, (segment, start, end) -> matchingLines.add(decodeLine(segment, start, end)));
+        } catch (IOException e) {
+            // The collecting sink never throws
+            throw new UncheckedIOException(e);
+        }
+        return matchingLines;
+    }
+
+    // Counts matching lines without creating anything per line.
+    public static long count(ByteMatcher matcher, MemorySegment content) {
+        long[] count = new long[1];
+        try {
+            grep(matcher, content, new MatchSink() {
+                @Override
+                public void accept(MemorySegment segment, long lineStart, long lineEnd) {
+                    count[0]++;
+                }
+
+                @Override
+                public boolean isCountOnly() {
+                    return true;
+                }
+
+                @Override
+                public void countLine() {
+                    count[0]++;
+                }
+            });
+        } catch (IOException e) {
+            // The counting sink never throws
+            throw new UncheckedIOException(e);
+        }
+        return count[0];
+    }
+
+    // Only the lines that contain a match are located and handed to the sink; everything between matches is skipped.
+    // Long stretches without a match are searched a line-aligned slice at a time, so a sink that is done (or a
+    // search that was called off elsewhere) stops the scan within one slice, and output that has waited a while in
+    // the sink's buffer is shown between slices.
+    public static void grep(ByteMatcher matcher, MemorySegment content, MatchSink sink) throws IOException {
+        if (isBinary(content, content.byteSize())) {
+            sink.binaryInput();
+        }
+        grep(matcher, content, sink, true);
+    }
+
+    // Like grep, an input counts as binary if its first block has a NUL byte, which text in UTF-8 or any
+    // ASCII-based encoding doesn't. Only the first block is checked so that the cost doesn't grow with the input.
+    static boolean isBinary(MemorySegment content, long available) {
+        return ByteScan.containsNul(content, 0, Math.min(available, STREAM_BLOCK_SIZE));
+    }
+
+    private static void grep(ByteMatcher matcher, MemorySegment content, MatchSink sink, boolean endOfInput)
+            throws IOException {
+        long end = content.byteSize();
+        long from = 0;
+        boolean countOnly = sink.isCountOnly();
+
+        while (from < end && !sink.isDone()) {
+            long limit = end;
+            if (end - from > DONE_CHECK_INTERVAL) {
+                limit = Math.min(end, ByteScan.lineEnd(content, from + DONE_CHECK_INTERVAL, end) + 1);
+            }
+
+            long match = matcher.find(content, from, limit);
+            if (match < 0) {
+                from = limit;
+                sink.flushIfDue();
+                continue;
+            }
+
+            if (countOnly) {
+                sink.countLine();
+                from = ByteScan.lineEnd(content, match, end) + 1;
+                continue;
+            }
+
+            long lineStart = ByteScan.lineStart(content, from, match);
+            long lineEnd = ByteScan.lineEnd(content, match, end);
+
+            sink.accept(content, lineStart, stripCarriageReturn(content, lineStart, lineEnd));
+            from = lineEnd + 1;
+        }
+        sink.endOfContent(content, endOfInput);
+    }
+
+    // Reads the input block by block and searches every complete line as soon as it arrives, so a match in a
+    // pipe that is still being written is printed right away. Only the unfinished last line of a block is
+    // carried over. The buffer grows for a line longer than a block and shrinks back once it has been
+    // searched, so memory stays at the block size apart from while such a line is read.
+    public static void grep(ByteMatcher matcher, InputStream input, MatchSink sink) throws IOException {
+        byte[] buffer = new byte[STREAM_BLOCK_SIZE];
+        int filled = 0;
+        boolean checkedBinary = false;
+
+        while (!sink.isDone()) {
+            if (filled == buffer.length) {
+                buffer = Arrays.copyOf(buffer, buffer.length * 2);
+            }
+
+            if (input.available() == 0) {
+                sink.flush();
+            }
+            int read = input.read(buffer, filled, buffer.length - filled);
+            MemorySegment segment = MemorySegment.ofArray(buffer);
+            if (read < 0) {
+                if (filled > 0) {
+                    grep(matcher, segment.asSlice(0, filled), sink, true);
+                }
+                return;
+            }
+
+            long newline = ByteScan.lastIndexOf(segment, ByteScan.NEWLINE, filled, filled + read);
+            filled += read;
+            if (!checkedBinary && filled > 0) {
+                checkedBinary = true;
+                if (isBinary(segment, filled)) {
+                    sink.binaryInput();
+                }
+            }
+            if (newline < 0) {
+                continue;
+            }
+
+            int complete = (int) newline + 1;
+            grep(matcher, segment.asSlice(0, complete), sink, false);
+            System.arraycopy(buffer, complete, buffer, 0, filled - complete);
+            filled -= complete;
+            if (buffer.length > STREAM_BLOCK_SIZE && filled <= STREAM_BLOCK_SIZE / 2) {
+                buffer = Arrays.copyOf(buffer, STREAM_BLOCK_SIZE);
+            }
+        }
+    }
+
+    static long stripCarriageReturn(MemorySegment content, long start, long end) {
+        if (end > start && content.get(ValueLayout.JAVA_BYTE, end - 1) == '\r') {
+            return end - 1;
+        }
+        return end;
+    }
+
+    static String decodeLine(MemorySegment content, long start, long end) {
+        byte[] bytes = content.asSlice(start, end - start).toArray(ValueLayout.JAVA_BYTE);
+        return new String(bytes, StandardCharsets.UTF_8);
+    }
+
     private static List<String> grepCaseSensitive(String searchString, List<String> lines) {
         return lines.stream()
                 .filter(line -> line.contains(searchString))
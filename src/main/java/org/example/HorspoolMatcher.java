@@ -0,0 +1,53 @@
+package org.example;
+
+import java.lang.foreign.MemorySegment;
+import java.lang.foreign.ValueLayout;
+import java.util.Arrays;
+
+public class HorspoolMatcher implements ByteMatcher {
+    private final byte[] pattern;
+    private final boolean ignoreAsciiCase;
+    private final int[] skip = new int[256];
+
+    public HorspoolMatcher(byte[] pattern) {
+        this(pattern, false);
+    }
+
+    public HorspoolMatcher(byte[] pattern, boolean ignoreAsciiCase) {
+        this.pattern = pattern.clone();
+        this.ignoreAsciiCase = ignoreAsciiCase;
+        int last = pattern.length - 1;
+
+        Arrays.fill(skip, pattern.length);
+        for (int i = 0; i < last; i++) {
+            skip[pattern[i] & 0xff] = last - i;
+            if (ignoreAsciiCase && SubstringMatcher.caseMask(pattern[i]) != 0) {
+                skip[(pattern[i] & ~0x20) & 0xff] = last - i;
+            }
+        }
+    }
+
+    @Override
+    public long find(MemorySegment haystack, long from, long to) {
+        int last = pattern.length - 1;
+        byte lastByte = pattern[last];
+        byte lastMask = ignoreAsciiCase ? SubstringMatcher.caseMask(lastByte) : 0;
+        long limit = to - pattern.length;
+
+        long pos = from;
+        while (pos <= limit) {
+            byte b = haystack.get(ValueLayout.JAVA_BYTE, pos + last);
+            if ((byte) (b | lastMask) == lastByte && verify(haystack, pos)) {
+                return pos;
+            }
+            pos += skip[b & 0xff];
+        }
+        return -1;
+    }
+
+    private boolean verify(MemorySegment haystack, long pos) {
+        return ignoreAsciiCase
+                ? SubstringMatcher.matchesAtIgnoreAsciiCase(haystack, pos, pattern)
+                : SubstringMatcher.matchesAt(haystack, pos, pattern);
+    }
+}
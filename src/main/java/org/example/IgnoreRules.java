@@ -0,0 +1,251 @@
+package org.example;
+
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.regex.Pattern;
+
+// The rules of the .gitignore and .ignore files of one directory, with gitignore semantics, on top of the
+// rules of the directory above it. Of the rules that match a path the last one wins, .ignore coming after
+// .gitignore and a directory's own files after its parent's; a rule starting with '!' keeps the path again.
+//
+// Most rules name a file or directory (node_modules, target/) or a file extension (*.class), so those are
+// looked up by name or compared as a suffix, and only the remaining ones are run as regular expressions.
+// Ignore files above the searched directory are not read.
+public class IgnoreRules {
+
+    public static final String GITIGNORE = ".gitignore";
+    public static final String IGNORE = ".ignore";
+
+    // Ignores nothing and reads no ignore files (--no-ignore)
+    public static final IgnoreRules NONE = new IgnoreRules(null, null, List.of(), false);
+
+    private final IgnoreRules parent;
+    private final Path directory;
+    private final Rule[] rules;
+    private final boolean readsFiles;
+    // Index of the last rule that names a file or directory exactly, and of the last one that names a
+    // directory exactly, by name
+    private final Map<String, Integer> names = new HashMap<>();
+    private final Map<String, Integer> directoryNames = new HashMap<>();
+    private final List<Rule> globs = new ArrayList<>();
+
+    private IgnoreRules(IgnoreRules parent, Path directory, List<String> lines, boolean readsFiles) {
+        this.parent = parent;
+        this.directory = directory;
+        this.readsFiles = readsFiles;
+        List<Rule> parsed = new ArrayList<>();
+        for (String line : lines) {
+            Rule rule = Rule.parse(line, parsed.size());
+            if (rule != null) {
+                parsed.add(rule);
+            }
+        }
+        this.rules = parsed.toArray(new Rule[0]);
+
+        for (Rule rule : rules) {
+            if (rule.name != null) {
+                directoryNames.put(rule.name, rule.index);
+                if (!rule.directoryOnly) {
+                    names.put(rule.name, rule.index);
+                }
+            } else {
+                globs.add(rule);
+            }
+        }
+    }
+
+    // Ignores the .git directory of a repository and reads the ignore files of every directory walked.
+    public static IgnoreRules defaults(Path root) {
+        return new IgnoreRules(null, root, List.of(".git/"), true);
+    }
+
+    // Rules for the entries of a directory, given which ignore files its listing contained.
+    public IgnoreRules forDirectory(Path directory, boolean hasGitignore, boolean hasIgnore) {
+        if (!readsFiles || (!hasGitignore && !hasIgnore)) {
+            return this;
+        }
+        List<String> lines = new ArrayList<>();
+        if (hasGitignore) {
+            lines.addAll(readLines(directory.resolve(GITIGNORE)));
+        }
+        if (hasIgnore) {
+            lines.addAll(readLines(directory.resolve(IGNORE)));
+        }
+        return new IgnoreRules(this, directory, lines, true);
+    }
+
+    // An ignore file that cannot be read ignores nothing, as in git.
+    private static List<String> readLines(Path file) {
+        try {
+            return new String(Files.readAllBytes(file), StandardCharsets.UTF_8).lines().toList();
+        } catch (IOException e) {
+            return List.of();
+        }
+    }
+
+    public boolean isIgnored(Path path, boolean isDirectory) {
+        String name = path.getFileName().toString();
+        for (IgnoreRules level = this; level != null; level = level.parent) {
+            int match = level.lastMatch(path, name, isDirectory);
+            if (match >= 0) {
+                return !level.rules[match].negated;
+            }
+        }
+        return false;
+    }
+
+    // Index of the last rule of this level that matches the path, or -1.
+    private int lastMatch(Path path, String name, boolean isDirectory) {
+        int match = (isDirectory ? directoryNames : names).getOrDefault(name, -1);
+        String relative = null;
+        for (int i = globs.size() - 1; i >= 0 && globs.get(i).index > match; i--) {
+            Rule rule = globs.get(i);
+            if (rule.directoryOnly && !isDirectory) {
+                continue;
+            }
+            if (rule.anchored && relative == null) {
+                relative = directory.relativize(path).toString().replace('\\', '/');
+            }
+            if (rule.matches(rule.anchored ? relative : name)) {
+                return rule.index;
+            }
+        }
+        return match;
+    }
+
+    // One line of an ignore file. A rule is anchored to the ignore file's directory if it has a '/' anywhere
+    // but at its end; otherwise it matches the name of a file or directory at any depth below.
+    private static final class Rule {
+        private final int index;
+        private final boolean negated;
+        private final boolean directoryOnly;
+        private final boolean anchored;
+        private final String name;
+        private final String suffix;
+        private final Pattern pattern;
+
+        private Rule(int index, boolean negated, boolean directoryOnly, boolean anchored, String name,
+                     String suffix, Pattern pattern) {
+            this.index = index;
+            this.negated = negated;
+            this.directoryOnly = directoryOnly;
+            this.anchored = anchored;
+            this.name = name;
+            this.suffix = suffix;
+            this.pattern = pattern;
+        }
+
+        // Returns null for blank lines and comments.
+        static Rule parse(String line, int index) {
+            String glob = stripTrailingSpaces(line);
+            if (glob.isEmpty() || glob.startsWith("#")) {
+                return null;
+            }
+            boolean negated = glob.startsWith("!");
+            if (negated) {
+                glob = glob.substring(1);
+            }
+            boolean directoryOnly = glob.endsWith("/");
+            if (directoryOnly) {
+                glob = glob.substring(0, glob.length() - 1);
+            }
+            boolean anchored = glob.contains("/");
+            if (glob.startsWith("/")) {
+                glob = glob.substring(1);
+            }
+            if (glob.isEmpty()) {
+                return null;
+            }
+
+            if (!anchored && !hasWildcards(glob)) {
+                return new Rule(index, negated, directoryOnly, false, unescape(glob), null, null);
+            }
+            if (!anchored && glob.startsWith("*") && !hasWildcards(glob.substring(1))) {
+                return new Rule(index, negated, directoryOnly, false, null, unescape(glob.substring(1)), null);
+            }
+            return new Rule(index, negated, directoryOnly, anchored, null, null, Pattern.compile(toRegex(glob)));
+        }
+
+        boolean matches(String path) {
+            if (suffix != null) {
+                return path.endsWith(suffix);
+            }
+            return pattern.matcher(path).matches();
+        }
+
+        // Trailing spaces are dropped unless escaped with a backslash.
+        private static String stripTrailingSpaces(String line) {
+            int end = line.length();
+            while (end > 0 && line.charAt(end - 1) == ' ' && (end < 2 || line.charAt(end - 2) != '\\')) {
+                end--;
+            }
+            return line.substring(0, end);
+        }
+
+        private static boolean hasWildcards(String glob) {
+            for (int i = 0; i < glob.length(); i++) {
+                char c = glob.charAt(i);
+                if (c == '*' || c == '?' || c == '[') {
+                    return true;
+                }
+                if (c == '\\') {
+                    i++;
+                }
+            }
+            return false;
+        }
+
+        private static String unescape(String glob) {
+            return glob.replaceAll("\\\\(.)", "$1");
+        }
+
+        // '*' and '?' stop at a '/', while "**/" at the start, "/**/" and "/**" at the end span directories.
+        private static String toRegex(String glob) {
+            StringBuilder regex = new StringBuilder();
+            int i = 0;
+            if (glob.startsWith("**/")) {
+                regex.append("(?:.*/)?");
+                i = 3;
+            }
+            while (i < glob.length()) {
+                char c = glob.charAt(i);
+                if (glob.startsWith("/**/", i)) {
+                    regex.append("/(?:.*/)?");
+                    i += 4;
+                } else if (glob.startsWith("/**", i) && i + 3 == glob.length()) {
+                    regex.append("/.*");
+                    i += 3;
+                } else if (c == '*') {
+                    regex.append("[^/]*");
+                    while (i < glob.length() && glob.charAt(i) == '*') {
+                        i++;
+                    }
+                } else if (c == '?') {
+                    regex.append("[^/]");
+                    i++;
+                } else if (c == '[' && glob.indexOf(']', i + 2) > 0) {
+                    int close = glob.indexOf(']', i + 2);
+                    String set = glob.substring(i + 1, close);
+                    if (set.startsWith("!")) {
+                        set = "^" + set.substring(1);
+                    }
+                    regex.append('[').append(set.replace("\\", "\\\\").replace("[", "\\[")).append(']');
+                    i = close + 1;
+                } else if (c == '\\' && i + 1 < glob.length()) {
+                    regex.append(Pattern.quote(String.valueOf(glob.charAt(i + 1))));
+                    i += 2;
+                } else {
+                    regex.append(Pattern.quote(String.valueOf(c)));
+                    i++;
+                }
+            }
+            return regex.toString();
+        }
+    }
+}
@@ -0,0 +1,27 @@
+package org.example;
+
+import java.lang.foreign.MemorySegment;
+import java.util.regex.Pattern;
+
+// Fallback for expressions the lazy DFA cannot run. Every line it is given is decoded and searched
+// with java.util.regex, so RegexMatcher only hands it lines that passed the literal prefilter.
+public class JavaRegexMatcher implements ByteMatcher {
+    private final Pattern pattern;
+
+    public JavaRegexMatcher(Pattern pattern) {
+        this.pattern = pattern;
+    }
+
+    @Override
+    public long find(MemorySegment haystack, long from, long to) {
+        long lineStart = from;
+        while (lineStart < to) {
+            long lineEnd = ByteScan.lineEnd(haystack, lineStart, to);
+            if (pattern.matcher(GrepService.decodeLine(haystack, lineStart, lineEnd)).find()) {
+                return lineStart;
+            }
+            lineStart = lineEnd + 1;
+        }
+        return -1;
+    }
+}
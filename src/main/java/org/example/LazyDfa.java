@@ -0,0 +1,207 @@
+package org.example;
+
+import java.lang.foreign.MemorySegment;
+import java.lang.foreign.ValueLayout;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+// Runs a RegexNfa as a DFA whose states are built on demand, one subset construction step per new
+// transition. Each input byte costs one table lookup once its transition exists, and at most one
+// O(NFA size) step otherwise, so matching stays linear in the input. The cache is not thread-safe;
+// RegexMatcher gives every thread its own LazyDfa.
+public class LazyDfa implements ByteMatcher {
+    // Beyond this many DFA states the cache is flushed and rebuilt from the current state.
+    static final int MAX_CACHED_STATES = 4096;
+    private static final int UNKNOWN = -1;
+
+    private final RegexNfa nfa;
+    private final Map<Key, Integer> stateIds = new HashMap<>();
+    private final List<int[]> stateSets = new ArrayList<>();
+    private boolean[] accepting = new boolean[64];
+    private boolean[] acceptingAtLineEnd = new boolean[64];
+    private int[] transitions = new int[64 * 256];
+    private int lineStartState = UNKNOWN;
+
+    private final int[] stack;
+    private final int[] marks;
+    private int generation;
+
+    public LazyDfa(RegexNfa nfa) {
+        this.nfa = nfa;
+        this.stack = new int[nfa.size() * 3 + 2];
+        this.marks = new int[nfa.size()];
+        Arrays.fill(transitions, UNKNOWN);
+    }
+
+    // Treats '\n' as a line separator: each line is matched on its own, with ^ and $ bound to its ends.
+    @Override
+    public long find(MemorySegment haystack, long from, long to) {
+        int state = lineStart();
+        long lineStart = from;
+
+        for (long i = from; i < to; i++) {
+            if (accepting[state]) {
+                return i;
+            }
+            byte b = haystack.get(ValueLayout.JAVA_BYTE, i);
+            if (b == ByteScan.NEWLINE) {
+                if (acceptingAtLineEnd[state]) {
+                    return i;
+                }
+                state = lineStart();
+                lineStart = i + 1;
+                continue;
+            }
+            int next = transitions[state * 256 + (b & 0xff)];
+            if (next == UNKNOWN) {
+                next = step(state, b & 0xff);
+            }
+            state = next;
+        }
+
+        if (lineStart < to && (accepting[state] || acceptingAtLineEnd[state])) {
+            return to - 1;
+        }
+        return -1;
+    }
+
+    private int lineStart() {
+        if (lineStartState == UNKNOWN) {
+            lineStartState = intern(closure(new int[]{nfa.start()}, 1, true, false));
+        }
+        return lineStartState;
+    }
+
+    private int step(int state, int b) {
+        int[] set = stateSets.get(state);
+        int[] seeds = new int[set.length + 1];
+        int count = 0;
+        for (int nfaState : set) {
+            if (nfa.kind(nfaState) == RegexNfa.BYTE_SET && nfa.accepts(nfaState, b)) {
+                seeds[count++] = nfa.out1(nfaState);
+            }
+        }
+        // Unanchored search: a match may begin at any byte, so the start state is always live.
+        seeds[count++] = nfa.start();
+        int[] nextSet = closure(seeds, count, false, false);
+
+        if (stateSets.size() >= MAX_CACHED_STATES) {
+            flush();
+            return intern(nextSet);
+        }
+        int next = intern(nextSet);
+        transitions[state * 256 + b] = next;
+        return next;
+    }
+
+    private void flush() {
+        stateIds.clear();
+        stateSets.clear();
+        Arrays.fill(transitions, UNKNOWN);
+        lineStartState = UNKNOWN;
+    }
+
+    private int intern(int[] set) {
+        Key key = new Key(set);
+        Integer existing = stateIds.get(key);
+        if (existing != null) {
+            return existing;
+        }
+
+        int id = stateSets.size();
+        if (id == accepting.length) {
+            int capacity = id * 2;
+            accepting = Arrays.copyOf(accepting, capacity);
+            acceptingAtLineEnd = Arrays.copyOf(acceptingAtLineEnd, capacity);
+            transitions = Arrays.copyOf(transitions, capacity * 256);
+            Arrays.fill(transitions, id * 256, capacity * 256, UNKNOWN);
+        }
+
+        stateSets.add(set);
+        stateIds.put(key, id);
+        accepting[id] = contains(set, RegexNfa.MATCH);
+
+        int[] lineEnds = new int[set.length];
+        int count = 0;
+        for (int nfaState : set) {
+            if (nfa.kind(nfaState) == RegexNfa.LINE_END) {
+                lineEnds[count++] = nfa.out1(nfaState);
+            }
+        }
+        acceptingAtLineEnd[id] = accepting[id]
+                || (count > 0 && contains(closure(lineEnds, count, false, true), RegexNfa.MATCH));
+        return id;
+    }
+
+    // Epsilon closure keeping only the states a DFA state is made of: byte sets, $ and the match state.
+    private int[] closure(int[] seeds, int count, boolean atLineStart, boolean atLineEnd) {
+        generation++;
+        int top = 0;
+        for (int i = 0; i < count; i++) {
+            stack[top++] = seeds[i];
+        }
+
+        int[] result = new int[nfa.size()];
+        int size = 0;
+        while (top > 0) {
+            int state = stack[--top];
+            if (marks[state] == generation) {
+                continue;
+            }
+            marks[state] = generation;
+
+            switch (nfa.kind(state)) {
+                case RegexNfa.SPLIT:
+                    stack[top++] = nfa.out2(state);
+                    stack[top++] = nfa.out1(state);
+                    break;
+                case RegexNfa.LINE_START:
+                    if (atLineStart) {
+                        stack[top++] = nfa.out1(state);
+                    }
+                    break;
+                case RegexNfa.LINE_END:
+                    if (atLineEnd) {
+                        stack[top++] = nfa.out1(state);
+                    } else {
+                        result[size++] = state;
+                    }
+                    break;
+                default:
+                    result[size++] = state;
+                    break;
+            }
+        }
+
+        int[] set = Arrays.copyOf(result, size);
+        Arrays.sort(set);
+        return set;
+    }
+
+    private static boolean contains(int[] sortedSet, int state) {
+        return Arrays.binarySearch(sortedSet, state) >= 0;
+    }
+
+    private static final class Key {
+        private final int[] states;
+        private final int hash;
+
+        Key(int[] states) {
+            this.states = states;
+            this.hash = Arrays.hashCode(states);
+        }
+
+        @Override
+        public boolean equals(Object other) {
+            return other instanceof Key && Arrays.equals(states, ((Key) other).states);
+        }
+
+        @Override
+        public int hashCode() {
+            return hash;
+        }
+    }
+}
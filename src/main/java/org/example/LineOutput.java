@@ -0,0 +1,23 @@
+package org.example;
+
+import java.io.IOException;
+import java.lang.foreign.MemorySegment;
+
+// Destination for formatted output lines, written piece by piece: prefixes, line bytes, then endLine().
+public interface LineOutput {
+    void write(MemorySegment content, long start, long end) throws IOException;
+
+    void write(byte[] bytes, int offset, int length) throws IOException;
+
+    void endLine() throws IOException;
+
+    // The content segment passed to write may be released after this returns.
+    default void endOfContent() throws IOException {
+    }
+
+    default void flush() throws IOException {
+    }
+
+    default void flushIfDue() throws IOException {
+    }
+}
@@ -1,47 +1,101 @@
 package org.example;
+import java.io.FileDescriptor;
+import java.io.FileInputStream;
 import java.io.IOException;
+import java.io.InputStream;
+import java.lang.foreign.Arena;
+import java.lang.foreign.MemorySegment;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
 import java.nio.file.AccessDeniedException;
 import java.nio.file.Files;
 import java.nio.file.NoSuchFileException;
 import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.ArrayList;
 import java.util.List;
+import java.util.stream.Collectors;
 
 public class Main {
+    private static final String STDIN_NAME = "(standard input)";
+
+    // Exit status as in grep: 0 if a line matched, 1 if none did, 2 on errors.
     public static void main(String[] args) {
         try {
             GrepOptions options = ArgumentParser.parse(args);
 
-            executeGrep(options);
+            boolean matched = executeGrep(options, true);
+            System.exit(matched ? 0 : 1);
         } catch (IllegalArgumentException e) {
             System.err.println(e.getMessage());
-            System.exit(1);
+            System.exit(2);
         } catch (GrepException e) {
             System.err.println(e.getMessage());
-            System.exit(1);
+            System.exit(2);
         } catch (IOException e) {
             System.err.println("./mygrep: " + e.getMessage());
-            System.exit(1);
+            System.exit(2);
         }
     }
 
-    static void executeGrep(GrepOptions options) throws IOException, GrepException {
-        List<String> lines = readInput(options);
+    static boolean executeGrep(GrepOptions options) throws IOException, GrepException {
+        return executeGrep(options, false);
+    }
 
-        List<String> matchingLines = GrepService.grep(
-                options.getSearchString(),
-                lines,
-                options.isCaseInsensitive()
+    // With directStdio stdin and stdout are used through file descriptors 0 and 1 rather than System.in and
+    // System.out, which tests replace.
+    static boolean executeGrep(GrepOptions options, boolean directStdio) throws IOException, GrepException {
+        ByteMatcher matcher = GrepService.compile(
+                resolvePatterns(options),
+                options.isCaseInsensitive(),
+                options.isExtendedRegex(),
+                options.getEncoding()
         );
+        SearchStatus status = new SearchStatus(options.isQuiet());
+
+        if (options.isStdinMode()) {
+            try (OutputWriter out = OutputWriter.open(options.getOutputFile(), directStdio)) {
+                MatchPrinter printer = new MatchPrinter(options, STDIN_NAME, false, out, status);
+                InputStream stdin = directStdio ? new FileInputStream(FileDescriptor.in) : System.in;
+                if (options.isDecompress()) {
+                    stdin = FileSearcher.decompressIfGzip(stdin);
+                }
+                GrepService.grep(matcher, stdin, printer);
+                printer.finish();
+            }
+            return status.hasMatched();
+        }
+
+        FileSearcher searcher = new FileSearcher(options.getMmapMode(), FileSearcher.DEFAULT_MMAP_THRESHOLD,
+                FileSearcher.NO_CHUNKS, options.isDecompress());
+        if (options.isRecursive() && options.isDirectoryMode()) {
+            try (OutputWriter out = OutputWriter.open(options.getOutputFile(), directStdio)) {
+                MultiFileGrep.grepRecursively(searcher, matcher, options.getInputPath(), out, options, status);
+            }
+            return status.hasMatched();
+        }
 
-        OutputWriter.writeOutput(matchingLines, options.getOutputFile());
+        Path path = Path.of(options.getInputPath());
+        checkReadableFile(path);
+        // A single file has the cores to itself, unlike the files of a recursive search
+        if (Runtime.getRuntime().availableProcessors() > 1) {
+            searcher = new FileSearcher(options.getMmapMode(), FileSearcher.DEFAULT_MMAP_THRESHOLD,
+                    FileSearcher.DEFAULT_CHUNK_THRESHOLD, options.isDecompress());
+        }
+        try (OutputWriter out = OutputWriter.open(options.getOutputFile(), directStdio)) {
+            MatchPrinter printer = new MatchPrinter(options, options.getInputPath(), false, out, status);
+            searcher.search(matcher, path, printer);
+            printer.finish();
+        }
+        return status.hasMatched();
     }
 
-    private static List<String> readInput(GrepOptions options) throws IOException, GrepException {
-        if (options.isStdinMode()) {
-            return InputReader.readFromStdin();
-        } else {
-            return readFile(options.getInputPath());
+    static List<String> resolvePatterns(GrepOptions options) throws IOException, GrepException {
+        List<String> patterns = new ArrayList<>(options.getPatterns());
+        if (options.hasPatternFile()) {
+            patterns.addAll(readFile(options.getPatternFile()));
         }
+        return patterns;
     }
 
     public static List<String> readFile(String filename) throws IOException, GrepException {
@@ -51,25 +105,65 @@ public class Main {
 
     public static List<String> readFileFromPath(Path path) throws IOException, GrepException {
         String filename = path.toString();
+        checkReadableFile(path);
 
-        if (!Files.exists(path)) {
+        try {
+            // Decoded leniently: an invalid byte is replaced instead of failing the whole file
+            String text = new String(Files.readAllBytes(path), StandardCharsets.UTF_8);
+            return text.lines().collect(Collectors.toList());
+        } catch (AccessDeniedException e) {
+            throw new GrepException("./mygrep: " + filename + ": Permission denied");
+        } catch (NoSuchFileException e) {
             throw new GrepException("./mygrep: " + filename + ": open: No such file or directory");
         }
+    }
 
-        if (Files.isDirectory(path)) {
-            throw new GrepException("./mygrep: " + filename + ": read: Is a directory");
-        }
+    public static InputStream openFile(Path path) throws IOException, GrepException {
+        String filename = path.toString();
+        checkReadableFile(path);
 
-        if (!Files.isReadable(path)) {
+        try {
+            return Files.newInputStream(path);
+        } catch (AccessDeniedException e) {
             throw new GrepException("./mygrep: " + filename + ": Permission denied");
+        } catch (NoSuchFileException e) {
+            throw new GrepException("./mygrep: " + filename + ": open: No such file or directory");
+        }
+    }
+
+    // The mapping stays valid until the arena is closed, independent of the channel.
+    public static MemorySegment mapFile(Path path, Arena arena) throws IOException, GrepException {
+        try (FileChannel channel = openChannel(path)) {
+            return channel.map(FileChannel.MapMode.READ_ONLY, 0, channel.size(), arena);
         }
+    }
+
+    public static FileChannel openChannel(Path path) throws IOException, GrepException {
+        String filename = path.toString();
+        checkReadableFile(path);
 
         try {
-            return Files.readAllLines(path);
+            return FileChannel.open(path, StandardOpenOption.READ);
         } catch (AccessDeniedException e) {
             throw new GrepException("./mygrep: " + filename + ": Permission denied");
         } catch (NoSuchFileException e) {
             throw new GrepException("./mygrep: " + filename + ": open: No such file or directory");
         }
     }
+
+    private static void checkReadableFile(Path path) throws GrepException {
+        String filename = path.toString();
+
+        if (!Files.exists(path)) {
+            throw new GrepException("./mygrep: " + filename + ": open: No such file or directory");
+        }
+
+        if (Files.isDirectory(path)) {
+            throw new GrepException("./mygrep: " + filename + ": read: Is a directory");
+        }
+
+        if (!Files.isReadable(path)) {
+            throw new GrepException("./mygrep: " + filename + ": Permission denied");
+        }
+    }
 }
\ No newline at end of file
@@ -0,0 +1,380 @@
+package org.example;
+
+import java.io.IOException;
+import java.lang.foreign.MemorySegment;
+import java.lang.foreign.ValueLayout;
+import java.nio.charset.StandardCharsets;
+
+// Formats the matches of one input according to the output options: the matching lines themselves,
+// optionally behind "filename:", only the filename (-l), the number of matching lines (-c), or nothing
+// at all (-q). Call finish() once the input has been searched.
+//
+// With -A/-B/-C the lines around a match are found from the match itself: the search only reports matching
+// lines, so the printer scans back from a match for its leading context and forward from the last printed
+// line for the trailing context, never past what it has already printed. Context positions are tracked as
+// offsets into the input, which is all that's needed while the input is one segment. When it arrives in
+// blocks, the last -B lines of each block are copied into a ring of that size before the block is reused.
+//
+// Line numbers (-n) are worked out only for lines that are printed, by counting the newlines between the
+// previous printed line and the next one. Stretches after the last printed line are never counted, except
+// when the input arrives in blocks and a block is about to go away.
+//
+// A binary input (see GrepService.isBinary) is by default reported with a single "Binary file NAME matches"
+// line at its first match instead of its matching lines, and the search of it stops there.
+public class MatchPrinter implements MatchSink {
+
+    private static final byte[] SEPARATOR = {':'};
+    private static final byte[] CONTEXT_SEPARATOR = {'-'};
+    static final byte[] GROUP_SEPARATOR = {'-', '-'};
+
+    private final LineOutput out;
+    private final SearchStatus status;
+    private final byte[] filename;
+    private final boolean filenamePrefix;
+    private final boolean listFiles;
+    private final boolean quiet;
+    private final boolean countLines;
+    private final long maxCount;
+    private final int beforeContext;
+    private final int afterContext;
+    private final LineRing ring;
+    private final boolean lineNumbers;
+    private final boolean byteOffsets;
+    private final BinaryFiles binaryFiles;
+    private final byte[] digits = new byte[20];
+    private long count;
+    private boolean binary;
+    private boolean skipped;
+
+    // Offset of the current segment within the input, and the input offset just past the last printed line
+    // (-1 until something is printed).
+    private long contentBase;
+    private long printedUpTo = -1;
+    private int afterPending;
+
+    // Line number of the line starting at input offset countedUpTo, and a number the search already knew
+    // for a later line (anchorStart is -1 if there is none).
+    private long countedUpTo;
+    private long lineNumber = 1;
+    private long anchorStart = -1;
+    private long anchorNumber;
+
+    public MatchPrinter(GrepOptions options, String filename, boolean filenamePrefix, LineOutput out,
+                        SearchStatus status) {
+        this.out = out;
+        this.status = status;
+        this.filename = filename.getBytes(StandardCharsets.UTF_8);
+        this.filenamePrefix = filenamePrefix;
+        this.listFiles = options.isListFiles();
+        this.quiet = options.isQuiet();
+        this.countLines = options.isCountLines();
+        this.maxCount = options.getMaxCount();
+        this.beforeContext = options.getBeforeContext();
+        this.afterContext = options.getAfterContext();
+        this.ring = new LineRing(beforeContext);
+        this.lineNumbers = options.isLineNumbers();
+        this.byteOffsets = options.isByteOffsets();
+        this.binaryFiles = options.getBinaryFiles();
+    }
+
+    @Override
+    public void accept(MemorySegment content, long lineStart, long lineEnd) throws IOException {
+        if (isCountOnly()) {
+            countLine();
+            return;
+        }
+
+        count++;
+        status.markMatched();
+        if (binary) {
+            writeLine(("Binary file " + new String(filename, StandardCharsets.UTF_8) + " matches")
+                    .getBytes(StandardCharsets.UTF_8));
+            return;
+        }
+        if (!hasContext()) {
+            applyAnchor();
+            printLine(content, lineStart, lineEnd, SEPARATOR);
+            return;
+        }
+
+        printAfterContext(content, lineStart);
+        applyAnchor();
+        printBeforeContext(content, lineStart);
+        printLine(content, lineStart, lineEnd, SEPARATOR);
+        printedUpTo = contentBase + nextLineStart(content, lineEnd);
+        afterPending = afterContext;
+    }
+
+    private boolean hasContext() {
+        return beforeContext > 0 || afterContext > 0;
+    }
+
+    // Whether the printer needs to know where the current segment lies in the input.
+    private boolean tracksPosition() {
+        return hasContext() || lineNumbers || byteOffsets;
+    }
+
+    @Override
+    public boolean needsLineNumbers() {
+        return lineNumbers && !isCountOnly();
+    }
+
+    @Override
+    public void knownLineNumber(long lineStart, long lineNumber) {
+        anchorStart = contentBase + lineStart;
+        anchorNumber = lineNumber;
+    }
+
+    private void applyAnchor() {
+        if (anchorStart >= countedUpTo) {
+            countedUpTo = anchorStart;
+            lineNumber = anchorNumber;
+        }
+        anchorStart = -1;
+    }
+
+    // Line number of the line starting at input offset pos, which must lie in the current segment. Counting
+    // only moves forward, except for the few lines of leading context just before a known line number.
+    private long lineNumberAt(MemorySegment content, long pos) {
+        if (pos >= countedUpTo) {
+            lineNumber += ByteScan.countNewlines(content, countedUpTo - contentBase, pos - contentBase);
+            countedUpTo = pos;
+            return lineNumber;
+        }
+        return lineNumber - ByteScan.countNewlines(content, pos - contentBase, countedUpTo - contentBase);
+    }
+
+    // Trailing context of the last match, up to limit (the next match, or the end of the segment).
+    private void printAfterContext(MemorySegment content, long limit) throws IOException {
+        long pos = Math.max(0, printedUpTo - contentBase);
+        while (afterPending > 0 && pos < limit) {
+            long newline = ByteScan.lineEnd(content, pos, limit);
+            printLine(content, pos, GrepService.stripCarriageReturn(content, pos, newline), CONTEXT_SEPARATOR);
+            pos = Math.min(newline + 1, limit);
+            printedUpTo = contentBase + pos;
+            afterPending--;
+        }
+    }
+
+    // Leading context of the match at lineStart, preceded by "--" unless it continues the previous group.
+    private void printBeforeContext(MemorySegment content, long lineStart) throws IOException {
+        long floor = Math.max(0, printedUpTo - contentBase);
+        long start = lineStart;
+        int lines = 0;
+        while (lines < beforeContext && start > floor) {
+            start = ByteScan.lineStart(content, floor, start - 1);
+            lines++;
+        }
+
+        // The rest comes from earlier segments if this one starts too close to the match
+        int kept = start == 0 ? ring.countFrom(printedUpTo, beforeContext - lines) : 0;
+        long groupStart = kept > 0 ? ring.startOf(kept - 1) : contentBase + start;
+        if (printedUpTo >= 0 && groupStart != printedUpTo) {
+            writeLine(GROUP_SEPARATOR);
+        }
+
+        for (int i = kept - 1; i >= 0; i--) {
+            printLine(ring.lineOf(i), ring.numberOf(i), ring.startOf(i), CONTEXT_SEPARATOR);
+        }
+        for (long pos = start; pos < lineStart; ) {
+            long newline = ByteScan.lineEnd(content, pos, lineStart);
+            printLine(content, pos, GrepService.stripCarriageReturn(content, pos, newline), CONTEXT_SEPARATOR);
+            pos = newline + 1;
+        }
+    }
+
+    // Keeps the last lines of a segment that is about to go away, in case the next one starts with a match.
+    private void keepLastLines(MemorySegment content) {
+        long end = content.byteSize();
+        long floor = Math.max(0, printedUpTo - contentBase);
+        long start = end;
+        int lines = 0;
+        while (lines < beforeContext && start > floor) {
+            start = ByteScan.lineStart(content, floor, start - 1);
+            lines++;
+        }
+
+        for (long pos = start; pos < end; ) {
+            long newline = ByteScan.lineEnd(content, pos, end);
+            long lineEnd = GrepService.stripCarriageReturn(content, pos, newline);
+            long number = lineNumbers ? lineNumberAt(content, contentBase + pos) : 0;
+            ring.add(content.asSlice(pos, lineEnd - pos).toArray(ValueLayout.JAVA_BYTE), contentBase + pos, number);
+            pos = newline + 1;
+        }
+    }
+
+    private static long nextLineStart(MemorySegment content, long pos) {
+        long end = content.byteSize();
+        return Math.min(ByteScan.lineEnd(content, pos, end) + 1, end);
+    }
+
+    private void printLine(MemorySegment content, long start, long end, byte[] separator) throws IOException {
+        writeFilename(separator);
+        if (lineNumbers) {
+            writeNumber(lineNumberAt(content, contentBase + start), separator);
+        }
+        if (byteOffsets) {
+            writeNumber(contentBase + start, separator);
+        }
+        out.write(content, start, end);
+        out.endLine();
+    }
+
+    private void printLine(byte[] line, long number, long offset, byte[] separator) throws IOException {
+        writeFilename(separator);
+        if (lineNumbers) {
+            writeNumber(number, separator);
+        }
+        if (byteOffsets) {
+            writeNumber(offset, separator);
+        }
+        writeLine(line);
+    }
+
+    private void writeFilename(byte[] separator) throws IOException {
+        if (filenamePrefix) {
+            out.write(filename, 0, filename.length);
+            out.write(separator, 0, separator.length);
+        }
+    }
+
+    private void writeNumber(long number, byte[] separator) throws IOException {
+        int pos = digits.length;
+        do {
+            digits[--pos] = (byte) ('0' + number % 10);
+            number /= 10;
+        } while (number > 0);
+        out.write(digits, pos, digits.length - pos);
+        out.write(separator, 0, separator.length);
+    }
+
+    @Override
+    public void binaryInput() {
+        switch (binaryFiles) {
+            case BINARY -> binary = true;
+            case WITHOUT_MATCH -> skipped = true;
+            case TEXT -> { }
+        }
+    }
+
+    // None of -l, -c and -q print matching lines, so none of them needs to know where a line starts.
+    @Override
+    public boolean isCountOnly() {
+        return listFiles || countLines || quiet;
+    }
+
+    @Override
+    public void countLine() throws IOException {
+        count++;
+        status.markMatched();
+        if (listFiles && !quiet) {
+            writeLine(filename);
+        }
+    }
+
+    public void finish() throws IOException {
+        if (countLines && !listFiles && !quiet) {
+            byte[] number = Long.toString(count).getBytes(StandardCharsets.US_ASCII);
+            writeFilename(SEPARATOR);
+            writeLine(number);
+        }
+    }
+
+    private void writeLine(byte[] bytes) throws IOException {
+        out.write(bytes, 0, bytes.length);
+        out.endLine();
+    }
+
+    // -l needs one match per file, -m NUM needs NUM, and -q needs one in the whole search.
+    @Override
+    public boolean isDone() {
+        return skipped
+                || (binary && count > 0 && !isCountOnly())
+                || (listFiles && count > 0)
+                || (maxCount >= 0 && count >= maxCount)
+                || status.isOver();
+    }
+
+    public long getCount() {
+        return count;
+    }
+
+    @Override
+    public void endOfContent(MemorySegment content, boolean endOfInput) throws IOException {
+        if (tracksPosition() && !isCountOnly()) {
+            long size = content.byteSize();
+            printAfterContext(content, size);
+            if (!endOfInput) {
+                if (beforeContext > 0) {
+                    keepLastLines(content);
+                }
+                if (lineNumbers) {
+                    lineNumberAt(content, contentBase + size);
+                }
+                contentBase += size;
+            }
+        }
+        out.endOfContent();
+    }
+
+    @Override
+    public void flush() throws IOException {
+        out.flush();
+    }
+
+    @Override
+    public void flushIfDue() throws IOException {
+        out.flushIfDue();
+    }
+
+    // The most recent lines added, each with its offset in the input and its line number. Index 0 is the newest.
+    private static final class LineRing {
+        private final byte[][] lines;
+        private final long[] starts;
+        private final long[] numbers;
+        private int next;
+        private int size;
+
+        LineRing(int capacity) {
+            this.lines = new byte[Math.max(capacity, 0)][];
+            this.starts = new long[lines.length];
+            this.numbers = new long[lines.length];
+        }
+
+        void add(byte[] line, long start, long number) {
+            if (lines.length == 0) {
+                return;
+            }
+            lines[next] = line;
+            starts[next] = start;
+            numbers[next] = number;
+            next = (next + 1) % lines.length;
+            size = Math.min(size + 1, lines.length);
+        }
+
+        // How many of the newest lines, at most limit, start at or after from.
+        int countFrom(long from, int limit) {
+            int n = 0;
+            while (n < Math.min(size, limit) && starts[slot(n)] >= from) {
+                n++;
+            }
+            return n;
+        }
+
+        byte[] lineOf(int index) {
+            return lines[slot(index)];
+        }
+
+        long startOf(int index) {
+            return starts[slot(index)];
+        }
+
+        long numberOf(int index) {
+            return numbers[slot(index)];
+        }
+
+        private int slot(int index) {
+            return Math.floorMod(next - 1 - index, lines.length);
+        }
+    }
+}
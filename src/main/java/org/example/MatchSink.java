@@ -0,0 +1,52 @@
+package org.example;
+
+import java.io.IOException;
+import java.lang.foreign.MemorySegment;
+
+// Receives each matching line as a byte range without its line terminator.
+// The range stays valid until endOfContent() returns; after that the memory behind it may be unmapped or reused.
+@FunctionalInterface
+public interface MatchSink {
+    void accept(MemorySegment content, long lineStart, long lineEnd) throws IOException;
+
+    // A sink that only needs to know how many lines matched gets countLine() instead of accept(), which
+    // spares the search from locating where each matching line starts. Only called if isCountOnly() is true.
+    default boolean isCountOnly() {
+        return false;
+    }
+
+    default void countLine() throws IOException {
+    }
+
+    // Checked between matches; once it returns true the search of the current input stops.
+    default boolean isDone() {
+        return false;
+    }
+
+    // Called with the whole segment when its search is done, before it may be released or reused. Segments of
+    // one input are passed in order and each ends at a line boundary; endOfInput is false if more may follow.
+    default void endOfContent(MemorySegment content, boolean endOfInput) throws IOException {
+    }
+
+    // Called before the search of an input starts if its first block has a NUL byte (see GrepService.isBinary).
+    default void binaryInput() {
+    }
+
+    // A sink that prints line numbers can be told the number of a line the search already knows, so that it
+    // doesn't have to count the newlines up to it. Called right before accept() for that line.
+    default boolean needsLineNumbers() {
+        return false;
+    }
+
+    default void knownLineNumber(long lineStart, long lineNumber) {
+    }
+
+    // Called when the search is about to wait for more input, so buffered output can be shown meanwhile.
+    default void flush() throws IOException {
+    }
+
+    // Called between slices of a long search, so output that has been buffered for a while is shown even if no
+    // further match comes.
+    default void flushIfDue() throws IOException {
+    }
+}
@@ -0,0 +1,18 @@
+package org.example;
+
+import java.util.Locale;
+
+public enum MmapMode {
+    AUTO,
+    ALWAYS,
+    NEVER;
+
+    public static MmapMode parse(String value) {
+        try {
+            return valueOf(value.toUpperCase(Locale.ROOT));
+        } catch (IllegalArgumentException e) {
+            throw new IllegalArgumentException("./mygrep: invalid argument '" + value + "' for '--mmap'"
+                    + " (valid arguments are 'auto', 'always', 'never')");
+        }
+    }
+}
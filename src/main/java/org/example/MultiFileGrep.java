@@ -1,6 +1,7 @@
 package org.example;
 
 import java.io.IOException;
+import java.nio.file.Files;
 import java.nio.file.Path;
 import java.util.ArrayList;
 import java.util.List;
@@ -12,26 +13,76 @@ public class MultiFileGrep {
             List<Path> files,
             boolean caseInsensitive) throws IOException {
 
+        ByteMatcher matcher = GrepService.compile(List.of(searchString), caseInsensitive);
+        FileSearcher searcher = new FileSearcher(MmapMode.AUTO);
         List<FileGrepResult> results = new ArrayList<>();
 
         for (Path file : files) {
-            try {
-                List<String> lines = Main.readFileFromPath(file);
-                List<String> matchingLines = GrepService.grep(searchString, lines, caseInsensitive);
-
-                // Only include files with matches (as per grep behavior)
-                if (!matchingLines.isEmpty()) {
-                    results.add(new FileGrepResult(file.toString(), matchingLines));
-                }
-            } catch (GrepException e) {
-                // Skip files that can't be read (similar to grep behavior)
-                // Could log this if logging were enabled
+            FileGrepResult result = searchFile(searcher, matcher, file);
+
+            // Only include files with matches (as per grep behavior)
+            if (result != null && result.hasMatches()) {
+                results.add(result);
             }
         }
 
         return results;
     }
 
+    // Writes "filename:line" for every match, searching files in parallel but keeping them in list order.
+    public static void grepMultipleFiles(FileSearcher searcher, ByteMatcher matcher, List<Path> files,
+                                         OutputWriter out) throws IOException {
+        if (files.isEmpty()) {
+            return;
+        }
+        try (ParallelGrep parallelGrep = ParallelGrep.forFilesAt(files.get(0))) {
+            parallelGrep.grep(searcher, matcher, files, out);
+        }
+    }
+
+    // The -r pipeline: the walker lists the tree on its own pool while workers read, match and format files,
+    // and the calling thread writes each file's output in walk order. Every stage hands over through a
+    // bounded queue, so the search starts with the first file found and memory does not grow with the tree.
+    public static void grepRecursively(FileSearcher searcher, ByteMatcher matcher, String directory,
+                                       OutputWriter out, GrepOptions options, SearchStatus status)
+            throws IOException {
+        // The -o file has been created by now and may lie inside the tree
+        Path output = options.hasOutputFile() ? Path.of(options.getOutputFile()) : null;
+        try (DirectoryWalker files = DirectoryReader.walkFilesRecursively(directory, !options.isNoIgnore(), output);
+             ParallelGrep parallelGrep = ParallelGrep.forFilesAt(Path.of(directory))) {
+            parallelGrep.grep(searcher, matcher, files, out, options, status);
+        }
+    }
+
+    // Regular files are searched the way the searcher reads them (mapped, or read into a pooled buffer), and
+    // only the offsets of their matches are kept. Anything else cannot be read twice, so its matching lines
+    // are kept as text. Returns null if the file can't be read. The searcher must not decompress, as the
+    // offsets are read back from the file itself.
+    private static FileGrepResult searchFile(FileSearcher searcher, ByteMatcher matcher, Path file)
+            throws IOException {
+        if (Files.isRegularFile(file)) {
+            FileGrepResult.OffsetCollector collector = new FileGrepResult.OffsetCollector();
+            return grepFile(searcher, matcher, file, collector) ? collector.toResult(file) : null;
+        }
+
+        List<String> matchingLines = new ArrayList<>();
+        boolean readable = grepFile(searcher, matcher, file,
+                (content, start, end) -> matchingLines.add(GrepService.decodeLine(content, start, end)));
+        return readable ? new FileGrepResult(file.toString(), matchingLines) : null;
+    }
+
+    private static boolean grepFile(FileSearcher searcher, ByteMatcher matcher, Path file, MatchSink sink)
+            throws IOException {
+        try {
+            searcher.search(matcher, file, sink);
+            return true;
+        } catch (GrepException e) {
+            // Skip files that can't be read (similar to grep behavior)
+            // Could log this if logging were enabled
+            return false;
+        }
+    }
+
     public static String formatLineWithFilename(String filename, String line) {
         return filename + ":" + line;
     }
@@ -56,4 +107,12 @@ public class MultiFileGrep {
 
         return allFormattedLines;
     }
+
+    // Byte-level counterpart of formatAllResults: compact results are copied from their files to the output.
+    public static void writeAllResults(List<FileGrepResult> results, OutputWriter out)
+            throws IOException, GrepException {
+        for (FileGrepResult result : results) {
+            result.writeTo(out);
+        }
+    }
 }
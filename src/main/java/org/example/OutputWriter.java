@@ -1,13 +1,254 @@
 package org.example;
 
 import java.io.BufferedWriter;
+import java.io.Closeable;
+import java.io.Console;
+import java.io.FileDescriptor;
+import java.io.FileOutputStream;
 import java.io.FileWriter;
+import java.io.Flushable;
 import java.io.IOException;
+import java.io.PrintStream;
+import java.lang.foreign.MemorySegment;
+import java.nio.ByteBuffer;
+import java.nio.channels.Channels;
+import java.nio.channels.FileChannel;
+import java.nio.channels.GatheringByteChannel;
+import java.nio.channels.WritableByteChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.FileAlreadyExistsException;
 import java.nio.file.Files;
 import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.Arrays;
 import java.util.List;
+import java.util.concurrent.TimeUnit;
 
-public class OutputWriter {
+public class OutputWriter implements MatchSink, LineOutput, Closeable {
+
+    private static final int BUFFER_SIZE = 256 * 1024;
+    private static final long MAX_BUFFERED_NANOS = TimeUnit.MILLISECONDS.toNanos(200);
+    private static final int GATHER_MIN_LENGTH = 1024;
+    private static final int MAX_GATHERED = 1024;
+
+    private final WritableByteChannel channel;
+    private final Flushable target;
+    private final boolean ownsChannel;
+    private final boolean lineBuffered;
+    private final ByteBuffer buffer = ByteBuffer.allocateDirect(BUFFER_SIZE);
+    private final MemorySegment bufferSegment = MemorySegment.ofBuffer(buffer);
+    private long bufferedSince;
+
+    // Pending output for a gathering write: views of long lines in the searched input, interleaved with
+    // slices of the buffer holding everything that was copied in between
+    private final GatheringByteChannel gatheringChannel;
+    private final ByteBuffer[] gathered = new ByteBuffer[MAX_GATHERED];
+    private int gatheredCount;
+    private int stagedFrom;
+    private boolean hasViews;
+
+    private OutputWriter(WritableByteChannel channel, Flushable target, boolean ownsChannel, boolean lineBuffered) {
+        this.channel = channel;
+        this.gatheringChannel = channel instanceof GatheringByteChannel gathering ? gathering : null;
+        this.target = target;
+        this.ownsChannel = ownsChannel;
+        this.lineBuffered = lineBuffered;
+    }
+
+    public static OutputWriter open(String outputFile) throws GrepException, IOException {
+        return open(outputFile, false);
+    }
+
+    // Opens stdout when outputFile is null. Matches are written as they are found instead of being collected first.
+    // With directStdout the writer bypasses System.out and writes to file descriptor 1 itself, so no PrintStream
+    // lock or per-line encoding is involved; only the command line entry point may ask for that.
+    public static OutputWriter open(String outputFile, boolean directStdout) throws GrepException, IOException {
+        if (outputFile == null) {
+            if (directStdout) {
+                FileOutputStream stdout = new FileOutputStream(FileDescriptor.out);
+                return new OutputWriter(stdout.getChannel(), stdout, false, isTerminal());
+            }
+            PrintStream stdout = System.out;
+            return new OutputWriter(Channels.newChannel(stdout), stdout, false, false);
+        }
+
+        Path path = Path.of(outputFile);
+        if (Files.exists(path)) {
+            throw new GrepException("./mygrep: " + outputFile + ": File already exists");
+        }
+
+        try {
+            FileChannel file = FileChannel.open(path, StandardOpenOption.WRITE, StandardOpenOption.CREATE_NEW);
+            return new OutputWriter(file, () -> { }, true, false);
+        } catch (FileAlreadyExistsException e) {
+            throw new GrepException("./mygrep: " + outputFile + ": File already exists");
+        } catch (IOException e) {
+            throw new IOException("Failed to write to file: " + outputFile, e);
+        }
+    }
+
+    // Someone is watching the output, so every line is shown as soon as it is found.
+    private static boolean isTerminal() {
+        Console console = System.console();
+        return console != null && console.isTerminal();
+    }
+
+    @Override
+    public void accept(MemorySegment content, long lineStart, long lineEnd) throws IOException {
+        write(content, lineStart, lineEnd);
+        endLine();
+    }
+
+    // A sink that writes every line behind a fixed prefix, e.g. "filename:".
+    public MatchSink withPrefix(String prefix) {
+        MemorySegment encoded = MemorySegment.ofArray(prefix.getBytes(StandardCharsets.UTF_8));
+        return new MatchSink() {
+            @Override
+            public void accept(MemorySegment content, long lineStart, long lineEnd) throws IOException {
+                write(encoded, 0, encoded.byteSize());
+                OutputWriter.this.accept(content, lineStart, lineEnd);
+            }
+
+            @Override
+            public void endOfContent(MemorySegment content, boolean endOfInput) throws IOException {
+                OutputWriter.this.endOfContent();
+            }
+
+            @Override
+            public void flush() throws IOException {
+                OutputWriter.this.flush();
+            }
+
+            @Override
+            public void flushIfDue() throws IOException {
+                OutputWriter.this.flushIfDue();
+            }
+        };
+    }
+
+    // Writes already formatted output, such as complete lines collected by another thread.
+    @Override
+    public void write(byte[] bytes, int offset, int length) throws IOException {
+        write(MemorySegment.ofArray(bytes), offset, offset + length);
+    }
+
+    public void writeLine(String line) throws IOException {
+        MemorySegment encoded = MemorySegment.ofArray(line.getBytes(StandardCharsets.UTF_8));
+        write(encoded, 0, encoded.byteSize());
+        endLine();
+    }
+
+    @Override
+    public void write(MemorySegment content, long start, long end) throws IOException {
+        if (!hasPendingOutput() && end > start) {
+            bufferedSince = System.nanoTime();
+        }
+
+        // Long lines of mapped or direct input go to the channel as they are, without a copy
+        if (end - start >= GATHER_MIN_LENGTH && gatheringChannel != null && content.isNative()) {
+            // Room for the copied bytes before the view, the view, and the copied bytes after it
+            if (gatheredCount + 3 > gathered.length) {
+                drain();
+            }
+            stageBuffer();
+            gathered[gatheredCount++] = content.asSlice(start, end - start).asByteBuffer();
+            hasViews = true;
+            return;
+        }
+
+        while (start < end) {
+            if (!buffer.hasRemaining()) {
+                drain();
+            }
+            int length = (int) Math.min(buffer.remaining(), end - start);
+            MemorySegment.copy(content, start, bufferSegment, buffer.position(), length);
+            buffer.position(buffer.position() + length);
+            start += length;
+        }
+    }
+
+    @Override
+    public void endLine() throws IOException {
+        if (!hasPendingOutput()) {
+            bufferedSince = System.nanoTime();
+        }
+        if (!buffer.hasRemaining()) {
+            drain();
+        }
+        buffer.put((byte) '\n');
+        flushIfDue();
+    }
+
+    // Views point into the searched input, which is released once the search of that input ends.
+    @Override
+    public void endOfContent() throws IOException {
+        if (hasViews) {
+            drain();
+        }
+    }
+
+    @Override
+    public void endOfContent(MemorySegment content, boolean endOfInput) throws IOException {
+        endOfContent();
+    }
+
+    private boolean hasPendingOutput() {
+        return buffer.position() > 0 || gatheredCount > 0;
+    }
+
+    // Besides when it fills up, the buffer is flushed after every line on a terminal and once output has
+    // waited a while, so a slow search still shows its matches without paying for a flush per line. The check
+    // runs as each line ends and, from the search, between slices, so output doesn't wait for the next match.
+    @Override
+    public void flushIfDue() throws IOException {
+        if (hasPendingOutput() && (lineBuffered || System.nanoTime() - bufferedSince > MAX_BUFFERED_NANOS)) {
+            flush();
+        }
+    }
+
+    private void stageBuffer() {
+        if (buffer.position() > stagedFrom) {
+            gathered[gatheredCount++] = buffer.slice(stagedFrom, buffer.position() - stagedFrom);
+            stagedFrom = buffer.position();
+        }
+    }
+
+    private void drain() throws IOException {
+        if (gatheredCount == 0) {
+            buffer.flip();
+            while (buffer.hasRemaining()) {
+                channel.write(buffer);
+            }
+        } else {
+            stageBuffer();
+            ByteBuffer last = gathered[gatheredCount - 1];
+            while (last.hasRemaining()) {
+                gatheringChannel.write(gathered, 0, gatheredCount);
+            }
+            Arrays.fill(gathered, 0, gatheredCount, null);
+            gatheredCount = 0;
+            hasViews = false;
+        }
+        buffer.clear();
+        stagedFrom = 0;
+        bufferedSince = System.nanoTime();
+    }
+
+    @Override
+    public void flush() throws IOException {
+        if (hasPendingOutput()) {
+            drain();
+        }
+        target.flush();
+    }
+
+    @Override
+    public void close() throws IOException {
+        flush();
+        if (ownsChannel) {
+            channel.close();
+        }
+    }
 
     public static void writeOutput(List<String> matchingLines, String outputFile)
             throws GrepException, IOException {
@@ -41,4 +282,4 @@ public class OutputWriter {
             throw new IOException("Failed to write to file: " + filename, e);
         }
     }
-}
\ No newline at end of file
+}
@@ -0,0 +1,293 @@
+package org.example;
+
+import java.io.IOException;
+import java.io.InterruptedIOException;
+import java.io.UncheckedIOException;
+import java.lang.foreign.MemorySegment;
+import java.lang.foreign.ValueLayout;
+import java.nio.ByteBuffer;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayDeque;
+import java.util.Arrays;
+import java.util.Deque;
+import java.util.Set;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.RunnableFuture;
+
+// Searches several files at once while keeping the output in input order. The oldest file in flight writes
+// its matches straight to the output; each file behind it collects them in its own buffer until every file
+// before it has been written (a reorder buffer), and stops searching while that buffer is full. At most
+// maxInFlight files are searched or waiting to be written at any time, which bounds both the concurrency
+// and the memory held by the reorder buffer. With a Prefetcher, the files queued behind the
+// workers are read while the workers match the ones before them.
+public class ParallelGrep implements AutoCloseable {
+
+    // Output held per file while it waits for the files before it, 1 MiB
+    static final int OUTPUT_BUFFER_LIMIT = 1024 * 1024;
+
+    // File system types, as reported by FileStore.type(), whose files are reached over the network
+    private static final Set<String> NETWORK_FILE_SYSTEMS = Set.of(
+            "cifs", "smb3", "smbfs", "afs", "9p", "ceph", "glusterfs", "fuse.glusterfs", "lustre", "davfs");
+    private static final int NETWORK_FILES_IN_FLIGHT = 64;
+
+    private final ExecutorService executor;
+    private final int maxInFlight;
+    private final Prefetcher prefetcher;
+
+    private ParallelGrep(ExecutorService executor, int maxInFlight, Prefetcher prefetcher) {
+        this.executor = executor;
+        this.maxInFlight = maxInFlight;
+        this.prefetcher = prefetcher;
+    }
+
+    // For trees that mostly wait on the disk: a virtual thread per file, maxInFlight of them at a time.
+    // Every file already waits on its own thread, so there is nothing to read ahead.
+    public static ParallelGrep virtualThreads(int maxInFlight) {
+        return new ParallelGrep(Executors.newVirtualThreadPerTaskExecutor(), maxInFlight, null);
+    }
+
+    // For scans bound by matching: one platform thread per core. A few files are queued ahead of the
+    // threads so that none of them idles while the writer waits for a slow file, and those are prefetched.
+    public static ParallelGrep platformThreads(int threads) {
+        return new ParallelGrep(Executors.newFixedThreadPool(threads), threads * 4, new Prefetcher());
+    }
+
+    public static ParallelGrep platformThreads() {
+        return platformThreads(Runtime.getRuntime().availableProcessors());
+    }
+
+    // Picks the executor for files that lie where the given path does. On a network file system every file
+    // costs a round trip to the server, so the search waits far more than it matches and many files are kept
+    // in flight on virtual threads; local disks get a platform thread per core.
+    public static ParallelGrep forFilesAt(Path path) {
+        try {
+            if (isNetworkFileSystem(Files.getFileStore(path).type())) {
+                return virtualThreads(NETWORK_FILES_IN_FLIGHT);
+            }
+        } catch (IOException e) {
+            // The file store is only a hint; without it the search is assumed to be bound by matching
+        }
+        return platformThreads();
+    }
+
+    static boolean isNetworkFileSystem(String type) {
+        return NETWORK_FILE_SYSTEMS.contains(type) || type.startsWith("nfs") || type.startsWith("fuse.sshfs");
+    }
+
+    public void grep(FileSearcher searcher, ByteMatcher matcher, Iterable<Path> files, OutputWriter out)
+            throws IOException {
+        grep(searcher, matcher, files, out, GrepOptions.builder().build(), new SearchStatus(false));
+    }
+
+    // Once the status says the search is over (-q found a match), no further files are started and the
+    // ones in flight are cancelled; their workers notice at the next check and stop scanning.
+    public void grep(FileSearcher searcher, ByteMatcher matcher, Iterable<Path> files, OutputWriter out,
+                     GrepOptions options, SearchStatus status) throws IOException {
+        Deque<FileOutput> pending = new ArrayDeque<>();
+        var remaining = files.iterator();
+        boolean written = false;
+
+        try {
+            while (!status.isOver()) {
+                while (pending.size() < maxInFlight && remaining.hasNext() && !status.isOver()) {
+                    Path file = remaining.next();
+                    RunnableFuture<ByteBuffer> load = prefetcher == null ? null : prefetcher.prefetch(searcher, file);
+                    FileOutput output = new FileOutput(OUTPUT_BUFFER_LIMIT);
+                    output.search = executor.submit(
+                            () -> searchFile(searcher, matcher, file, load, output, options, status));
+                    pending.add(output);
+                }
+                if (pending.isEmpty()) {
+                    break;
+                }
+                // Each file only knows its own groups of context lines; the ones of different files are
+                // separated here, where the files' output is put in order.
+                FileOutput output = pending.removeFirst();
+                output.startWriting(out, written && options.hasContext());
+                await(output.search);
+                written |= output.hasWritten();
+            }
+        } finally {
+            for (FileOutput output : pending) {
+                output.search.cancel(true);
+            }
+        }
+    }
+
+    private FileOutput searchFile(FileSearcher searcher, ByteMatcher matcher, Path file,
+                                  RunnableFuture<ByteBuffer> load, FileOutput output, GrepOptions options,
+                                  SearchStatus status) throws IOException {
+        ByteBuffer loaded = load == null ? null : prefetcher.take(load);
+        try {
+            MatchPrinter printer = new MatchPrinter(options, file.toString(), true, output, status);
+            if (loaded != null) {
+                GrepService.grep(matcher, MemorySegment.ofBuffer(loaded), printer);
+            } else {
+                searcher.search(matcher, file, printer);
+            }
+            printer.finish();
+        } catch (GrepException e) {
+            // Skip files that can't be read, as the sequential search does
+        } finally {
+            if (loaded != null) {
+                prefetcher.release(loaded);
+            }
+        }
+        return output;
+    }
+
+    private static void await(Future<FileOutput> future) throws IOException {
+        try {
+            future.get();
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new InterruptedIOException("interrupted while waiting for search results");
+        } catch (ExecutionException e) {
+            Throwable cause = e.getCause();
+            if (cause instanceof IOException ioException) {
+                throw ioException;
+            }
+            if (cause instanceof UncheckedIOException uncheckedIOException) {
+                throw uncheckedIOException.getCause();
+            }
+            if (cause instanceof RuntimeException runtimeException) {
+                throw runtimeException;
+            }
+            throw new IllegalStateException(cause);
+        }
+    }
+
+    @Override
+    public void close() {
+        executor.close();
+        if (prefetcher != null) {
+            prefetcher.close();
+        }
+    }
+
+    // Formatted output of one file. Until the file's turn comes it is copied into a buffer (the input it was
+    // copied from may be unmapped by then), and once the buffer holds limit bytes the search waits. When its
+    // turn comes the buffer is written out and the rest of the output goes straight to the writer, which the
+    // writing thread leaves to this file's worker until its search has ended.
+    private static final class FileOutput implements LineOutput {
+        private final int limit;
+        private byte[] bytes = new byte[0];
+        private int size;
+        private OutputWriter out;
+        private boolean separated;
+        private boolean written;
+        private Future<FileOutput> search;
+
+        FileOutput(int limit) {
+            this.limit = limit;
+        }
+
+        // The group separator, if asked for, goes before the file's first line, so only if it has any.
+        synchronized void startWriting(OutputWriter out, boolean separated) throws IOException {
+            this.out = out;
+            this.separated = separated;
+            if (size > 0) {
+                startOutput();
+                out.write(bytes, 0, size);
+                out.flushIfDue();
+            }
+            bytes = null;
+            size = 0;
+            notifyAll();
+        }
+
+        synchronized boolean hasWritten() {
+            return written;
+        }
+
+        // Whether the next length bytes go straight to the writer, which is once the file's turn has come.
+        // A full buffer waits for it.
+        private boolean direct(long length) throws IOException {
+            while (out == null && size + length > limit) {
+                try {
+                    wait();
+                } catch (InterruptedException e) {
+                    Thread.currentThread().interrupt();
+                    throw new InterruptedIOException("interrupted while waiting to write output");
+                }
+            }
+            if (out != null) {
+                startOutput();
+                return true;
+            }
+            return false;
+        }
+
+        private void startOutput() throws IOException {
+            if (!written && separated) {
+                out.write(MatchPrinter.GROUP_SEPARATOR, 0, MatchPrinter.GROUP_SEPARATOR.length);
+                out.endLine();
+            }
+            written = true;
+        }
+
+        @Override
+        public synchronized void write(MemorySegment content, long start, long end) throws IOException {
+            if (direct(end - start)) {
+                out.write(content, start, end);
+                return;
+            }
+            int length = (int) (end - start);
+            ensureCapacity(length);
+            MemorySegment.copy(content, ValueLayout.JAVA_BYTE, start, bytes, size, length);
+            size += length;
+        }
+
+        @Override
+        public synchronized void write(byte[] source, int offset, int length) throws IOException {
+            if (direct(length)) {
+                out.write(source, offset, length);
+                return;
+            }
+            ensureCapacity(length);
+            System.arraycopy(source, offset, bytes, size, length);
+            size += length;
+        }
+
+        @Override
+        public synchronized void endLine() throws IOException {
+            if (direct(1)) {
+                out.endLine();
+                return;
+            }
+            ensureCapacity(1);
+            bytes[size++] = '\n';
+        }
+
+        @Override
+        public synchronized void endOfContent() throws IOException {
+            if (out != null) {
+                out.endOfContent();
+            }
+        }
+
+        @Override
+        public synchronized void flush() throws IOException {
+            if (out != null) {
+                out.flush();
+            }
+        }
+
+        @Override
+        public synchronized void flushIfDue() throws IOException {
+            if (out != null) {
+                out.flushIfDue();
+            }
+        }
+
+        private void ensureCapacity(int length) {
+            if (size + length > bytes.length) {
+                bytes = Arrays.copyOf(bytes, Math.min(Math.max(size + length, bytes.length * 2), limit));
+            }
+        }
+    }
+}
@@ -0,0 +1,108 @@
+package org.example;
+
+import java.io.IOException;
+import java.io.InterruptedIOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.FutureTask;
+import java.util.concurrent.RunnableFuture;
+import java.util.concurrent.atomic.AtomicLong;
+
+// Reads the next files into pooled buffers while earlier ones are matched, so that waiting on the disk
+// overlaps with matching. This matters most where every file has a high latency to open and read, as on
+// network volumes. Files are loaded on a small pool of I/O threads and only as long as they fit within a byte
+// budget; files over it, and those the searcher would map or stream, are left to the search. A search that
+// reaches a file whose load has not started yet runs it itself rather than waiting behind the other loads.
+public class Prefetcher implements AutoCloseable {
+
+    public static final int DEFAULT_THREADS = 4;
+    public static final long DEFAULT_BUDGET = 64 * 1024 * 1024;
+
+    private final ExecutorService executor;
+    private final AtomicLong budget;
+
+    public Prefetcher(int threads, long budget) {
+        this.executor = Executors.newFixedThreadPool(threads);
+        this.budget = new AtomicLong(budget);
+    }
+
+    public Prefetcher() {
+        this(DEFAULT_THREADS, DEFAULT_BUDGET);
+    }
+
+    public RunnableFuture<ByteBuffer> prefetch(FileSearcher searcher, Path file) {
+        RunnableFuture<ByteBuffer> load = new FutureTask<>(() -> load(searcher, file));
+        executor.execute(load);
+        return load;
+    }
+
+    // The file's content, or null if the search has to read the file itself. A buffer that is returned must
+    // be handed back with release() once the search is done with it.
+    public ByteBuffer take(RunnableFuture<ByteBuffer> load) throws IOException {
+        // Does nothing if an I/O thread has already started the load
+        load.run();
+        try {
+            return load.get();
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new InterruptedIOException("interrupted while waiting for a file to be read");
+        } catch (ExecutionException e) {
+            throw new IllegalStateException(e.getCause());
+        }
+    }
+
+    public void release(ByteBuffer buffer) {
+        budget.addAndGet(buffer.limit());
+        FileSearcher.returnBuffer(buffer);
+    }
+
+    private ByteBuffer load(FileSearcher searcher, Path file) {
+        // Opening a pipe would block until someone writes to it
+        if (!Files.isRegularFile(file)) {
+            return null;
+        }
+        try (FileChannel channel = FileChannel.open(file, StandardOpenOption.READ)) {
+            long size = channel.size();
+            if (!searcher.readsWhole(channel) || !reserve(size)) {
+                return null;
+            }
+            ByteBuffer buffer = FileSearcher.borrowBuffer((int) size);
+            try {
+                FileSearcher.readFully(channel, buffer, (int) size);
+            } catch (IOException e) {
+                FileSearcher.returnBuffer(buffer);
+                budget.addAndGet(size);
+                throw e;
+            }
+            // The file may have shrunk since its size was taken
+            budget.addAndGet(size - buffer.limit());
+            return buffer;
+        } catch (IOException e) {
+            // The search reads the file again and reports the error, if it still occurs
+            return null;
+        }
+    }
+
+    private boolean reserve(long size) {
+        long left = budget.get();
+        while (left >= size) {
+            if (budget.compareAndSet(left, left - size)) {
+                return true;
+            }
+            left = budget.get();
+        }
+        return false;
+    }
+
+    // Loads still queued are dropped and running ones interrupted; their buffers are left to the collector.
+    @Override
+    public void close() {
+        executor.shutdownNow();
+    }
+}
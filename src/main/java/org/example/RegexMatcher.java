@@ -0,0 +1,180 @@
+package org.example;
+
+import java.io.ByteArrayOutputStream;
+import java.lang.foreign.MemorySegment;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.function.Supplier;
+import java.util.regex.Pattern;
+import java.util.regex.PatternSyntaxException;
+
+// Extended regular expression matching (-E). Expressions run on a LazyDfa when RegexParser supports
+// them and on java.util.regex otherwise. When every match must contain one of a few literals, those
+// literals are searched with the substring engine first and the regex only runs on the lines they hit.
+public class RegexMatcher implements ByteMatcher {
+    static final int MAX_PREFILTER_LITERALS = 64;
+    static final int MIN_PREFILTER_LENGTH = 2;
+
+    private final ByteMatcher prefilter;
+    private final ThreadLocal<ByteMatcher> engine;
+
+    private RegexMatcher(ByteMatcher prefilter, Supplier<ByteMatcher> engineFactory) {
+        this.prefilter = prefilter;
+        this.engine = ThreadLocal.withInitial(engineFactory);
+    }
+
+    public static ByteMatcher compile(List<String> regexes, boolean ignoreCase) {
+        try {
+            List<RegexNode> branches = new ArrayList<>();
+            for (String regex : regexes) {
+                branches.add(RegexParser.parse(regex, ignoreCase));
+            }
+            if (branches.isEmpty()) {
+                return (haystack, from, to) -> -1;
+            }
+            RegexNode root = RegexNode.alternation(branches);
+            RegexNfa nfa = new RegexNfa(root);
+
+            List<byte[]> literals = analyze(root).required;
+            ByteMatcher prefilter = isSelective(literals) ? SubstringMatcher.compileAll(literals, ignoreCase) : null;
+            return new RegexMatcher(prefilter, () -> new LazyDfa(nfa));
+        } catch (RegexParser.UnsupportedRegexException e) {
+            Pattern pattern = compileJavaPattern(regexes, ignoreCase);
+            return new RegexMatcher(null, () -> new JavaRegexMatcher(pattern));
+        }
+    }
+
+    private static Pattern compileJavaPattern(List<String> regexes, boolean ignoreCase) {
+        StringBuilder combined = new StringBuilder();
+        for (String regex : regexes) {
+            if (!combined.isEmpty()) {
+                combined.append('|');
+            }
+            combined.append("(?:").append(regex).append(')');
+        }
+        try {
+            return Pattern.compile(combined.toString(), ignoreCase ? Pattern.CASE_INSENSITIVE | Pattern.UNICODE_CASE : 0);
+        } catch (PatternSyntaxException e) {
+            throw new IllegalArgumentException("./mygrep: invalid regular expression: " + e.getDescription());
+        }
+    }
+
+    @Override
+    public long find(MemorySegment haystack, long from, long to) {
+        ByteMatcher regex = engine.get();
+        if (prefilter == null) {
+            return regex.find(haystack, from, to);
+        }
+
+        long pos = from;
+        while (pos < to) {
+            long candidate = prefilter.find(haystack, pos, to);
+            if (candidate < 0) {
+                return -1;
+            }
+            long lineStart = ByteScan.lineStart(haystack, pos, candidate);
+            long lineEnd = ByteScan.lineEnd(haystack, candidate, to);
+
+            long match = regex.find(haystack, lineStart, lineEnd);
+            if (match >= 0) {
+                return match;
+            }
+            pos = lineEnd + 1;
+        }
+        return -1;
+    }
+
+    private static boolean isSelective(List<byte[]> literals) {
+        return literals != null && minLength(literals) >= MIN_PREFILTER_LENGTH;
+    }
+
+    // What is known about the strings a node matches: the single string it always matches, if any,
+    // and a set of literals one of which every match contains, if any.
+    private static final class Literals {
+        final byte[] exact;
+        final List<byte[]> required;
+
+        Literals(byte[] exact, List<byte[]> required) {
+            this.exact = exact;
+            this.required = required;
+        }
+
+        List<byte[]> requiredOrExact() {
+            return exact != null ? List.of(exact) : required;
+        }
+    }
+
+    private static Literals analyze(RegexNode node) {
+        switch (node.kind) {
+            case EMPTY:
+            case LINE_START:
+            case LINE_END:
+                return new Literals(new byte[0], null);
+            case CHAR:
+                return new Literals(node.literal, node.literal == null ? null : List.of(node.literal));
+            case CONCAT: {
+                ByteArrayOutputStream run = new ByteArrayOutputStream();
+                boolean allExact = true;
+                List<byte[]> best = null;
+                for (RegexNode child : node.children) {
+                    Literals literals = analyze(child);
+                    if (literals.exact != null) {
+                        run.writeBytes(literals.exact);
+                    } else {
+                        allExact = false;
+                        best = better(best, List.of(run.toByteArray()));
+                        best = better(best, literals.required);
+                        run.reset();
+                    }
+                }
+                best = better(best, List.of(run.toByteArray()));
+                return new Literals(allExact ? run.toByteArray() : null, best);
+            }
+            case ALT: {
+                List<byte[]> union = new ArrayList<>();
+                for (RegexNode child : node.children) {
+                    List<byte[]> literals = analyze(child).requiredOrExact();
+                    if (literals == null) {
+                        return new Literals(null, null);
+                    }
+                    union.addAll(literals);
+                }
+                return new Literals(null, union.size() <= MAX_PREFILTER_LITERALS ? union : null);
+            }
+            case REPEAT: {
+                if (node.min == 0) {
+                    return new Literals(null, null);
+                }
+                Literals child = analyze(node.children.get(0));
+                byte[] exact = node.min == 1 && node.max == 1 ? child.exact : null;
+                return new Literals(exact, child.requiredOrExact());
+            }
+            default:
+                return new Literals(null, null);
+        }
+    }
+
+    // Prefers the literal set whose shortest member is longest, then the smaller set.
+    private static List<byte[]> better(List<byte[]> a, List<byte[]> b) {
+        if (a == null) {
+            return b;
+        }
+        if (b == null) {
+            return a;
+        }
+        int lengthA = minLength(a);
+        int lengthB = minLength(b);
+        if (lengthA != lengthB) {
+            return lengthA > lengthB ? a : b;
+        }
+        return a.size() <= b.size() ? a : b;
+    }
+
+    private static int minLength(List<byte[]> literals) {
+        int min = Integer.MAX_VALUE;
+        for (byte[] literal : literals) {
+            min = Math.min(min, literal.length);
+        }
+        return literals.isEmpty() ? 0 : min;
+    }
+}
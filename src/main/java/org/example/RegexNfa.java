@@ -0,0 +1,127 @@
+package org.example;
+
+import java.util.Arrays;
+
+// Thompson NFA over bytes, built back to front from a RegexNode. The accepting state is state 0.
+public class RegexNfa {
+    static final int MATCH = 0;
+    static final int BYTE_SET = 1;
+    static final int SPLIT = 2;
+    static final int LINE_START = 3;
+    static final int LINE_END = 4;
+
+    // Bounds the NFA for expressions like (a{1000}){1000}; the DFA simulation is O(states) per byte.
+    static final int MAX_STATES = 100_000;
+
+    private int[] kind = new int[16];
+    private int[] out1 = new int[16];
+    private int[] out2 = new int[16];
+    private long[][] sets = new long[16][];
+    private int size;
+    private final int start;
+
+    public RegexNfa(RegexNode root) {
+        int match = add(MATCH, -1, -1, null);
+        this.start = compile(root, match);
+    }
+
+    int start() {
+        return start;
+    }
+
+    int size() {
+        return size;
+    }
+
+    int kind(int state) {
+        return kind[state];
+    }
+
+    int out1(int state) {
+        return out1[state];
+    }
+
+    int out2(int state) {
+        return out2[state];
+    }
+
+    boolean accepts(int state, int b) {
+        return RegexParser.contains(sets[state], b);
+    }
+
+    private int compile(RegexNode node, int next) {
+        switch (node.kind) {
+            case EMPTY:
+                return next;
+            case CHAR: {
+                int entry = -1;
+                for (long[][] sequence : node.sequences) {
+                    int chain = next;
+                    for (int i = sequence.length - 1; i >= 0; i--) {
+                        chain = add(BYTE_SET, chain, -1, sequence[i]);
+                    }
+                    entry = entry < 0 ? chain : add(SPLIT, chain, entry, null);
+                }
+                return entry;
+            }
+            case CONCAT: {
+                int entry = next;
+                for (int i = node.children.size() - 1; i >= 0; i--) {
+                    entry = compile(node.children.get(i), entry);
+                }
+                return entry;
+            }
+            case ALT: {
+                int entry = -1;
+                for (RegexNode child : node.children) {
+                    int branch = compile(child, next);
+                    entry = entry < 0 ? branch : add(SPLIT, branch, entry, null);
+                }
+                return entry;
+            }
+            case REPEAT: {
+                RegexNode child = node.children.get(0);
+                int tail;
+                if (node.max == RegexNode.UNBOUNDED) {
+                    int loop = add(SPLIT, -1, next, null);
+                    int body = compile(child, loop);
+                    out1[loop] = body;
+                    tail = loop;
+                } else {
+                    tail = next;
+                    for (int i = node.min; i < node.max; i++) {
+                        tail = add(SPLIT, compile(child, tail), next, null);
+                    }
+                }
+                for (int i = 0; i < node.min; i++) {
+                    tail = compile(child, tail);
+                }
+                return tail;
+            }
+            case LINE_START:
+                return add(LINE_START, next, -1, null);
+            case LINE_END:
+                return add(LINE_END, next, -1, null);
+            default:
+                throw new IllegalStateException("Unknown regex node: " + node.kind);
+        }
+    }
+
+    private int add(int stateKind, int first, int second, long[] set) {
+        if (size == MAX_STATES) {
+            throw new RegexParser.UnsupportedRegexException("regular expression too large");
+        }
+        if (size == kind.length) {
+            int capacity = size * 2;
+            kind = Arrays.copyOf(kind, capacity);
+            out1 = Arrays.copyOf(out1, capacity);
+            out2 = Arrays.copyOf(out2, capacity);
+            sets = Arrays.copyOf(sets, capacity);
+        }
+        kind[size] = stateKind;
+        out1[size] = first;
+        out2[size] = second;
+        sets[size] = set;
+        return size++;
+    }
+}
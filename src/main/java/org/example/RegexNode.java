@@ -0,0 +1,57 @@
+package org.example;
+
+import java.util.List;
+
+// Syntax tree of an extended regular expression, with characters already lowered to UTF-8 byte sets.
+public class RegexNode {
+
+    public enum Kind { EMPTY, CHAR, CONCAT, ALT, REPEAT, LINE_START, LINE_END }
+
+    public static final int UNBOUNDED = -1;
+
+    final Kind kind;
+    final List<RegexNode> children;
+    // CHAR: alternative byte sequences, each a list of 256-bit byte sets (four longs per set).
+    final List<long[][]> sequences;
+    // CHAR: the exact bytes when the node is a single literal character (lower-cased under -i).
+    final byte[] literal;
+    final int min;
+    final int max;
+
+    private RegexNode(Kind kind, List<RegexNode> children, List<long[][]> sequences, byte[] literal, int min, int max) {
+        this.kind = kind;
+        this.children = children;
+        this.sequences = sequences;
+        this.literal = literal;
+        this.min = min;
+        this.max = max;
+    }
+
+    static RegexNode empty() {
+        return new RegexNode(Kind.EMPTY, List.of(), List.of(), null, 0, 0);
+    }
+
+    static RegexNode character(List<long[][]> sequences, byte[] literal) {
+        return new RegexNode(Kind.CHAR, List.of(), sequences, literal, 0, 0);
+    }
+
+    static RegexNode concat(List<RegexNode> children) {
+        return children.size() == 1 ? children.get(0) : new RegexNode(Kind.CONCAT, children, List.of(), null, 0, 0);
+    }
+
+    static RegexNode alternation(List<RegexNode> children) {
+        return children.size() == 1 ? children.get(0) : new RegexNode(Kind.ALT, children, List.of(), null, 0, 0);
+    }
+
+    static RegexNode repeat(RegexNode child, int min, int max) {
+        return new RegexNode(Kind.REPEAT, List.of(child), List.of(), null, min, max);
+    }
+
+    static RegexNode lineStart() {
+        return new RegexNode(Kind.LINE_START, List.of(), List.of(), null, 0, 0);
+    }
+
+    static RegexNode lineEnd() {
+        return new RegexNode(Kind.LINE_END, List.of(), List.of(), null, 0, 0);
+    }
+}
@@ -0,0 +1,426 @@
+package org.example;
+
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.List;
+
+// Parses the subset of extended regular expressions that the lazy DFA can run: literals, '.',
+// bracket expressions, groups, alternation, the *, +, ? and {n,m} quantifiers and the ^ and $ anchors.
+// Anything else (back-references, look-around, word boundaries, non-ASCII under -i, ...) raises
+// UnsupportedRegexException so the caller can fall back to java.util.regex.
+public class RegexParser {
+
+    static final int MAX_REPEAT = 1000;
+
+    public static class UnsupportedRegexException extends RuntimeException {
+        private static final long serialVersionUID = 1L;
+
+        public UnsupportedRegexException(String message) {
+            super(message);
+        }
+    }
+
+    // UTF-8 lead byte ranges followed by their continuation bytes; together with ASCII they make up '.'.
+    private static final int[][] MULTIBYTE_LEADS = {{0xC2, 0xDF, 1}, {0xE0, 0xEF, 2}, {0xF0, 0xF4, 3}};
+
+    private final String regex;
+    private final boolean ignoreCase;
+    private int pos;
+
+    private RegexParser(String regex, boolean ignoreCase) {
+        this.regex = regex;
+        this.ignoreCase = ignoreCase;
+    }
+
+    public static RegexNode parse(String regex, boolean ignoreCase) {
+        RegexParser parser = new RegexParser(regex, ignoreCase);
+        RegexNode node = parser.parseAlternation();
+        if (parser.pos < regex.length()) {
+            throw new UnsupportedRegexException("unmatched ) at index " + parser.pos);
+        }
+        return node;
+    }
+
+    private RegexNode parseAlternation() {
+        List<RegexNode> branches = new ArrayList<>();
+        branches.add(parseConcat());
+        while (peek('|')) {
+            pos++;
+            branches.add(parseConcat());
+        }
+        return RegexNode.alternation(branches);
+    }
+
+    private RegexNode parseConcat() {
+        List<RegexNode> items = new ArrayList<>();
+        while (pos < regex.length() && !peek('|') && !peek(')')) {
+            items.add(parseRepeat(parseAtom()));
+        }
+        return items.isEmpty() ? RegexNode.empty() : RegexNode.concat(items);
+    }
+
+    private RegexNode parseRepeat(RegexNode atom) {
+        RegexNode node = atom;
+        while (pos < regex.length()) {
+            char c = regex.charAt(pos);
+            if (c == '*') {
+                node = RegexNode.repeat(node, 0, RegexNode.UNBOUNDED);
+            } else if (c == '+') {
+                node = RegexNode.repeat(node, 1, RegexNode.UNBOUNDED);
+            } else if (c == '?') {
+                node = RegexNode.repeat(node, 0, 1);
+            } else if (c == '{' && isBound()) {
+                node = parseBound(node);
+                continue;
+            } else {
+                break;
+            }
+            pos++;
+            if (peek('?') || peek('+')) {
+                throw new UnsupportedRegexException("lazy or possessive quantifier");
+            }
+        }
+        return node;
+    }
+
+    private boolean isBound() {
+        int close = regex.indexOf('}', pos);
+        return close > pos + 1 && regex.substring(pos + 1, close).matches("\\d+(,\\d*)?");
+    }
+
+    private RegexNode parseBound(RegexNode node) {
+        int close = regex.indexOf('}', pos);
+        String[] bounds = regex.substring(pos + 1, close).split(",", -1);
+        pos = close + 1;
+
+        int min = Integer.parseInt(bounds[0]);
+        int max = bounds.length == 1 ? min : bounds[1].isEmpty() ? RegexNode.UNBOUNDED : Integer.parseInt(bounds[1]);
+        if (min > MAX_REPEAT || max > MAX_REPEAT || (max != RegexNode.UNBOUNDED && max < min)) {
+            throw new UnsupportedRegexException("repetition bound out of range");
+        }
+        return RegexNode.repeat(node, min, max);
+    }
+
+    private RegexNode parseAtom() {
+        char c = regex.charAt(pos);
+        switch (c) {
+            case '(':
+                pos++;
+                if (peek('?')) {
+                    throw new UnsupportedRegexException("special group");
+                }
+                RegexNode group = parseAlternation();
+                expect(')');
+                return group;
+            case '[':
+                return parseBracket();
+            case '.':
+                pos++;
+                return RegexNode.character(anyCharacter(), null);
+            case '^':
+                pos++;
+                return RegexNode.lineStart();
+            case '$':
+                pos++;
+                return RegexNode.lineEnd();
+            case '\\':
+                return parseEscape();
+            case '*':
+            case '+':
+            case '?':
+                throw new UnsupportedRegexException("dangling quantifier at index " + pos);
+            default:
+                int codePoint = regex.codePointAt(pos);
+                pos += Character.charCount(codePoint);
+                return literal(codePoint);
+        }
+    }
+
+    private RegexNode parseEscape() {
+        pos++;
+        if (pos >= regex.length()) {
+            throw new UnsupportedRegexException("trailing backslash");
+        }
+        char c = regex.charAt(pos++);
+        long[] set = classEscape(Character.toLowerCase(c));
+        if (set != null) {
+            if (Character.isLowerCase(c)) {
+                return RegexNode.character(List.<long[][]>of(new long[][]{set}), null);
+            }
+            List<long[][]> sequences = new ArrayList<>();
+            sequences.add(new long[][]{asciiComplement(set)});
+            sequences.addAll(anyMultibyte());
+            return RegexNode.character(sequences, null);
+        }
+        switch (c) {
+            case 't':
+                return literal('\t');
+            case 'n':
+                return literal('\n');
+            case 'r':
+                return literal('\r');
+            case 'f':
+                return literal('\f');
+            default:
+                if (Character.isLetterOrDigit(c)) {
+                    throw new UnsupportedRegexException("escape \\" + c);
+                }
+                return literal(c);
+        }
+    }
+
+    // The byte set of \d, \w or \s; null for any other letter.
+    private static long[] classEscape(char c) {
+        long[] set = new long[4];
+        switch (c) {
+            case 'd':
+                addRange(set, '0', '9');
+                return set;
+            case 'w':
+                addRange(set, 'a', 'z');
+                addRange(set, 'A', 'Z');
+                addRange(set, '0', '9');
+                addRange(set, '_', '_');
+                return set;
+            case 's':
+                addRange(set, '\t', '\r');
+                addRange(set, ' ', ' ');
+                return set;
+            default:
+                return null;
+        }
+    }
+
+    private RegexNode parseBracket() {
+        pos++;
+        boolean negated = peek('^');
+        if (negated) {
+            pos++;
+        }
+
+        long[] set = new long[4];
+        List<long[][]> multibyte = new ArrayList<>();
+        boolean first = true;
+
+        while (true) {
+            if (pos >= regex.length()) {
+                throw new UnsupportedRegexException("unterminated bracket expression");
+            }
+            char c = regex.charAt(pos);
+            if (c == ']' && !first) {
+                pos++;
+                break;
+            }
+            first = false;
+
+            if (c == '[' && regex.startsWith("[:", pos)) {
+                int close = regex.indexOf(":]", pos + 2);
+                if (close < 0) {
+                    throw new UnsupportedRegexException("unterminated character class");
+                }
+                addPosixClass(set, regex.substring(pos + 2, close));
+                pos = close + 2;
+                continue;
+            }
+            if (c == '\\' && pos + 1 < regex.length()) {
+                char escapedChar = regex.charAt(pos + 1);
+                if (Character.isUpperCase(escapedChar) && classEscape(Character.toLowerCase(escapedChar)) != null) {
+                    throw new UnsupportedRegexException("negated class escape in bracket expression");
+                }
+                long[] escaped = classEscape(escapedChar);
+                if (escaped != null) {
+                    or(set, escaped);
+                    pos += 2;
+                    continue;
+                }
+                pos++;
+            }
+
+            int low = regex.codePointAt(pos);
+            pos += Character.charCount(low);
+            int high = low;
+            if (peek('-') && pos + 1 < regex.length() && regex.charAt(pos + 1) != ']') {
+                pos++;
+                high = regex.codePointAt(pos);
+                pos += Character.charCount(high);
+            }
+
+            if (high < 0x80) {
+                if (high < low) {
+                    throw new UnsupportedRegexException("invalid range");
+                }
+                addRange(set, low, high);
+            } else if (low == high && !negated && !ignoreCase) {
+                multibyte.add(byteSequence(low));
+            } else {
+                throw new UnsupportedRegexException("non-ASCII range in bracket expression");
+            }
+        }
+
+        if (ignoreCase) {
+            addOtherCase(set);
+        }
+
+        List<long[][]> sequences = new ArrayList<>();
+        if (negated) {
+            sequences.add(new long[][]{asciiComplement(set)});
+            sequences.addAll(anyMultibyte());
+        } else {
+            sequences.add(new long[][]{set});
+            sequences.addAll(multibyte);
+        }
+        return RegexNode.character(sequences, null);
+    }
+
+    private static void addPosixClass(long[] set, String name) {
+        switch (name) {
+            case "alpha":
+                addRange(set, 'a', 'z');
+                addRange(set, 'A', 'Z');
+                break;
+            case "digit":
+                addRange(set, '0', '9');
+                break;
+            case "alnum":
+                addRange(set, 'a', 'z');
+                addRange(set, 'A', 'Z');
+                addRange(set, '0', '9');
+                break;
+            case "upper":
+                addRange(set, 'A', 'Z');
+                break;
+            case "lower":
+                addRange(set, 'a', 'z');
+                break;
+            case "space":
+                addRange(set, '\t', '\r');
+                addRange(set, ' ', ' ');
+                break;
+            case "blank":
+                addRange(set, '\t', '\t');
+                addRange(set, ' ', ' ');
+                break;
+            case "xdigit":
+                addRange(set, '0', '9');
+                addRange(set, 'a', 'f');
+                addRange(set, 'A', 'F');
+                break;
+            case "punct":
+                addRange(set, '!', '/');
+                addRange(set, ':', '@');
+                addRange(set, '[', '`');
+                addRange(set, '{', '~');
+                break;
+            case "print":
+                addRange(set, ' ', '~');
+                break;
+            case "graph":
+                addRange(set, '!', '~');
+                break;
+            case "cntrl":
+                addRange(set, 0, 0x1F);
+                addRange(set, 0x7F, 0x7F);
+                break;
+            default:
+                throw new UnsupportedRegexException("unknown character class [:" + name + ":]");
+        }
+    }
+
+    private RegexNode literal(int codePoint) {
+        if (codePoint < 0x80) {
+            long[] set = new long[4];
+            addRange(set, codePoint, codePoint);
+            byte b = (byte) codePoint;
+            if (ignoreCase) {
+                addOtherCase(set);
+                b = SubstringMatcher.ASCII_FOLD[codePoint];
+            }
+            return RegexNode.character(List.<long[][]>of(new long[][]{set}), new byte[]{b});
+        }
+        if (ignoreCase) {
+            throw new UnsupportedRegexException("non-ASCII literal under -i");
+        }
+        return RegexNode.character(List.<long[][]>of(byteSequence(codePoint)), new String(Character.toChars(codePoint))
+                .getBytes(StandardCharsets.UTF_8));
+    }
+
+    private static long[][] byteSequence(int codePoint) {
+        byte[] bytes = new String(Character.toChars(codePoint)).getBytes(StandardCharsets.UTF_8);
+        long[][] sequence = new long[bytes.length][];
+        for (int i = 0; i < bytes.length; i++) {
+            sequence[i] = new long[4];
+            addRange(sequence[i], bytes[i] & 0xff, bytes[i] & 0xff);
+        }
+        return sequence;
+    }
+
+    private static List<long[][]> anyCharacter() {
+        List<long[][]> sequences = new ArrayList<>();
+        sequences.add(new long[][]{asciiComplement(new long[4])});
+        sequences.addAll(anyMultibyte());
+        return sequences;
+    }
+
+    private static List<long[][]> anyMultibyte() {
+        List<long[][]> sequences = new ArrayList<>();
+        for (int[] lead : MULTIBYTE_LEADS) {
+            long[][] sequence = new long[lead[2] + 1][];
+            sequence[0] = new long[4];
+            addRange(sequence[0], lead[0], lead[1]);
+            for (int i = 1; i <= lead[2]; i++) {
+                sequence[i] = new long[4];
+                addRange(sequence[i], 0x80, 0xBF);
+            }
+            sequences.add(sequence);
+        }
+        return sequences;
+    }
+
+    // ASCII bytes not in the set, never including the newline that separates lines.
+    private static long[] asciiComplement(long[] set) {
+        long[] complement = new long[4];
+        addRange(complement, 0, 0x7F);
+        for (int i = 0; i < 4; i++) {
+            complement[i] &= ~set[i];
+        }
+        complement[0] &= ~(1L << '\n');
+        return complement;
+    }
+
+    private static void addOtherCase(long[] set) {
+        for (int c = 'a'; c <= 'z'; c++) {
+            int upper = c - 0x20;
+            if (contains(set, c) || contains(set, upper)) {
+                addRange(set, c, c);
+                addRange(set, upper, upper);
+            }
+        }
+    }
+
+    static boolean contains(long[] set, int b) {
+        return (set[b >>> 6] & (1L << b)) != 0;
+    }
+
+    private static void addRange(long[] set, int low, int high) {
+        for (int b = low; b <= high; b++) {
+            set[b >>> 6] |= 1L << b;
+        }
+    }
+
+    private static void or(long[] set, long[] other) {
+        for (int i = 0; i < 4; i++) {
+            set[i] |= other[i];
+        }
+    }
+
+    private boolean peek(char c) {
+        return pos < regex.length() && regex.charAt(pos) == c;
+    }
+
+    private void expect(char c) {
+        if (!peek(c)) {
+            throw new UnsupportedRegexException("expected '" + c + "' at index " + pos);
+        }
+        pos++;
+    }
+}
@@ -0,0 +1,28 @@
+package org.example;
+
+import java.util.concurrent.atomic.AtomicBoolean;
+
+// State shared by every input of one search. Once anything matched, a -q search is over: workers stop
+// scanning and files that have not been started are dropped.
+public class SearchStatus {
+    private final boolean stopAtFirstMatch;
+    private final AtomicBoolean matched = new AtomicBoolean();
+
+    public SearchStatus(boolean stopAtFirstMatch) {
+        this.stopAtFirstMatch = stopAtFirstMatch;
+    }
+
+    public void markMatched() {
+        if (!matched.get()) {
+            matched.set(true);
+        }
+    }
+
+    public boolean hasMatched() {
+        return matched.get();
+    }
+
+    public boolean isOver() {
+        return stopAtFirstMatch && matched.get();
+    }
+}
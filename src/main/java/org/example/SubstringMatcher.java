@@ -0,0 +1,93 @@
+package org.example;
+
+import java.lang.foreign.MemorySegment;
+import java.lang.foreign.ValueLayout;
+import java.util.List;
+
+public class SubstringMatcher {
+
+    // Horspool's and the vector prefilter's worst case is O(n * m), so long patterns go to Two-Way,
+    // which stays linear.
+    static final int HORSPOOL_MAX_LENGTH = 32;
+
+    // The Vector API is an incubator module and is only usable when started with
+    // --add-modules jdk.incubator.vector; without it the scalar matchers are used.
+    static final boolean VECTOR_ENABLED = ModuleLayer.boot().findModule("jdk.incubator.vector").isPresent();
+
+    // Maps every byte to itself except ASCII 'A'-'Z', which map to 'a'-'z'.
+    static final byte[] ASCII_FOLD = new byte[256];
+
+    static {
+        for (int i = 0; i < 256; i++) {
+            ASCII_FOLD[i] = (byte) (i >= 'A' && i <= 'Z' ? i | 0x20 : i);
+        }
+    }
+
+    public static ByteMatcher compile(byte[] pattern) {
+        if (pattern.length == 0) {
+            return (haystack, from, to) -> from <= to ? from : -1;
+        }
+        if (VECTOR_ENABLED && pattern.length <= HORSPOOL_MAX_LENGTH) {
+            return new VectorSubstringMatcher(pattern);
+        }
+        if (pattern.length == 1) {
+            byte value = pattern[0];
+            return (haystack, from, to) -> ByteScan.indexOf(haystack, value, from, to);
+        }
+        if (pattern.length <= HORSPOOL_MAX_LENGTH) {
+            return new HorspoolMatcher(pattern);
+        }
+        return new TwoWayMatcher(pattern);
+    }
+
+    // The pattern must already be lower-cased; haystack bytes are folded with ASCII_FOLD while matching.
+    public static ByteMatcher compileIgnoreAsciiCase(byte[] foldedPattern) {
+        if (foldedPattern.length == 0) {
+            return compile(foldedPattern);
+        }
+        if (VECTOR_ENABLED && foldedPattern.length <= HORSPOOL_MAX_LENGTH) {
+            return new VectorSubstringMatcher(foldedPattern, true);
+        }
+        return new HorspoolMatcher(foldedPattern, true);
+    }
+
+    // Finds the first position where any of the patterns match in a single pass.
+    public static ByteMatcher compileAll(List<byte[]> patterns, boolean ignoreAsciiCase) {
+        if (patterns.isEmpty()) {
+            return (haystack, from, to) -> -1;
+        }
+        if (patterns.size() == 1) {
+            return ignoreAsciiCase ? compileIgnoreAsciiCase(patterns.get(0)) : compile(patterns.get(0));
+        }
+        for (byte[] pattern : patterns) {
+            if (pattern.length == 0) {
+                return compile(pattern);
+            }
+        }
+        return new AhoCorasickMatcher(patterns, ignoreAsciiCase);
+    }
+
+    // Bits that are cleared in the upper-case form of a folded ASCII letter, so that
+    // (b | caseMask(p)) == p accepts both cases of p and only the exact byte for non-letters.
+    static byte caseMask(byte foldedByte) {
+        return (byte) (foldedByte >= 'a' && foldedByte <= 'z' ? 0x20 : 0);
+    }
+
+    static boolean matchesAt(MemorySegment haystack, long offset, byte[] pattern) {
+        for (int i = 0; i < pattern.length; i++) {
+            if (haystack.get(ValueLayout.JAVA_BYTE, offset + i) != pattern[i]) {
+                return false;
+            }
+        }
+        return true;
+    }
+
+    static boolean matchesAtIgnoreAsciiCase(MemorySegment haystack, long offset, byte[] foldedPattern) {
+        for (int i = 0; i < foldedPattern.length; i++) {
+            if (ASCII_FOLD[haystack.get(ValueLayout.JAVA_BYTE, offset + i) & 0xff] != foldedPattern[i]) {
+                return false;
+            }
+        }
+        return true;
+    }
+}
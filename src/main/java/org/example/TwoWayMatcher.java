@@ -0,0 +1,127 @@
+package org.example;
+
+import java.lang.foreign.MemorySegment;
+import java.lang.foreign.ValueLayout;
+
+// Crochemore-Perrin Two-Way search, with a Horspool-style shift on the last byte of the window.
+public class TwoWayMatcher implements ByteMatcher {
+    private final byte[] pattern;
+    private final int[] shift = new int[256];
+    private final int criticalPos;
+    private final int period;
+    private final boolean periodic;
+
+    public TwoWayMatcher(byte[] pattern) {
+        this.pattern = pattern.clone();
+        int length = pattern.length;
+
+        for (int i = 0; i < length; i++) {
+            shift[pattern[i] & 0xff] = i + 1;
+        }
+
+        int[] forward = maximalSuffix(pattern, false);
+        int[] reverse = maximalSuffix(pattern, true);
+        int ms;
+        int p;
+        if (reverse[0] > forward[0]) {
+            ms = reverse[0];
+            p = reverse[1];
+        } else {
+            ms = forward[0];
+            p = forward[1];
+        }
+
+        if (isPeriodic(pattern, ms, p)) {
+            this.period = p;
+            this.periodic = true;
+        } else {
+            this.period = Math.max(ms, length - ms - 1) + 1;
+            this.periodic = false;
+        }
+        this.criticalPos = ms;
+    }
+
+    // Returns {index before the maximal suffix, its period} under the given byte ordering.
+    private static int[] maximalSuffix(byte[] n, boolean reversed) {
+        int ip = -1;
+        int jp = 0;
+        int k = 1;
+        int p = 1;
+
+        while (jp + k < n.length) {
+            int a = n[ip + k] & 0xff;
+            int b = n[jp + k] & 0xff;
+            if (a == b) {
+                if (k == p) {
+                    jp += p;
+                    k = 1;
+                } else {
+                    k++;
+                }
+            } else if (reversed ? a < b : a > b) {
+                jp += k;
+                k = 1;
+                p = jp - ip;
+            } else {
+                ip = jp++;
+                k = 1;
+                p = 1;
+            }
+        }
+        return new int[]{ip, p};
+    }
+
+    private static boolean isPeriodic(byte[] n, int ms, int p) {
+        for (int i = 0; i <= ms; i++) {
+            if (n[i] != n[i + p]) {
+                return false;
+            }
+        }
+        return true;
+    }
+
+    @Override
+    public long find(MemorySegment haystack, long from, long to) {
+        int length = pattern.length;
+        int ms = criticalPos;
+        int memory = 0;
+        int memoryReset = periodic ? length - period : 0;
+
+        long h = from;
+        while (to - h >= length) {
+            int last = haystack.get(ValueLayout.JAVA_BYTE, h + length - 1) & 0xff;
+            int k = length - shift[last];
+            if (shift[last] == 0) {
+                h += length;
+                memory = 0;
+                continue;
+            }
+            if (k != 0) {
+                h += Math.max(k, memory);
+                memory = 0;
+                continue;
+            }
+
+            k = Math.max(ms + 1, memory);
+            while (k < length && pattern[k] == haystack.get(ValueLayout.JAVA_BYTE, h + k)) {
+                k++;
+            }
+            if (k < length) {
+                h += k - ms;
+                memory = 0;
+                continue;
+            }
+
+            k = ms + 1;
+            while (k > memory && pattern[k - 1] == haystack.get(ValueLayout.JAVA_BYTE, h + k - 1)) {
+                k--;
+            }
+            if (k <= memory) {
+                return h;
+            }
+            h += period;
+            memory = memoryReset;
+        }
+        return -1;
+    }
+}
@@ -0,0 +1,24 @@
+package org.example;
+
+import jdk.incubator.vector.ByteVector;
+import jdk.incubator.vector.VectorSpecies;
+
+import java.lang.foreign.MemorySegment;
+import java.nio.ByteOrder;
+
+// Counts newlines a whole vector at a time: compare every lane with '\n' and count the lanes that matched.
+public class VectorNewlineCounter {
+    private static final VectorSpecies<Byte> SPECIES = ByteVector.SPECIES_PREFERRED;
+
+    public static long count(MemorySegment segment, long from, long to) {
+        int width = SPECIES.length();
+        long count = 0;
+
+        long pos = from;
+        for (; pos + width <= to; pos += width) {
+            ByteVector bytes = ByteVector.fromMemorySegment(SPECIES, segment, pos, ByteOrder.nativeOrder());
+            count += bytes.eq(ByteScan.NEWLINE).trueCount();
+        }
+        return count + ByteScan.countNewlinesScalar(segment, pos, to);
+    }
+}
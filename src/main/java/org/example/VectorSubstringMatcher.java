@@ -0,0 +1,75 @@
+package org.example;
+
+import jdk.incubator.vector.ByteVector;
+import jdk.incubator.vector.VectorSpecies;
+
+import java.lang.foreign.MemorySegment;
+import java.lang.foreign.ValueLayout;
+import java.nio.ByteOrder;
+
+// Compares the pattern's first and last bytes against a whole vector of window positions at a time
+// and only verifies the full pattern at positions where both agree. When ignoring ASCII case the
+// pattern is expected lower-cased and letters are compared after OR-ing in the 0x20 case bit.
+public class VectorSubstringMatcher implements ByteMatcher {
+    private static final VectorSpecies<Byte> SPECIES = ByteVector.SPECIES_PREFERRED;
+
+    private final byte[] pattern;
+    private final boolean ignoreAsciiCase;
+    private final byte firstByte;
+    private final byte lastByte;
+    private final byte firstMask;
+    private final byte lastMask;
+
+    public VectorSubstringMatcher(byte[] pattern) {
+        this(pattern, false);
+    }
+
+    public VectorSubstringMatcher(byte[] pattern, boolean ignoreAsciiCase) {
+        this.pattern = pattern.clone();
+        this.ignoreAsciiCase = ignoreAsciiCase;
+        this.firstByte = pattern[0];
+        this.lastByte = pattern[pattern.length - 1];
+        this.firstMask = ignoreAsciiCase ? SubstringMatcher.caseMask(firstByte) : 0;
+        this.lastMask = ignoreAsciiCase ? SubstringMatcher.caseMask(lastByte) : 0;
+    }
+
+    @Override
+    public long find(MemorySegment haystack, long from, long to) {
+        int lastIndex = pattern.length - 1;
+        int width = SPECIES.length();
+        ByteVector firsts = ByteVector.broadcast(SPECIES, firstByte);
+        ByteVector lasts = ByteVector.broadcast(SPECIES, lastByte);
+
+        long pos = from;
+        while (pos + lastIndex + width <= to) {
+            ByteVector head = ByteVector.fromMemorySegment(SPECIES, haystack, pos, ByteOrder.nativeOrder());
+            ByteVector tail = ByteVector.fromMemorySegment(SPECIES, haystack, pos + lastIndex, ByteOrder.nativeOrder());
+            long candidates = head.or(firstMask).eq(firsts).and(tail.or(lastMask).eq(lasts)).toLong();
+
+            while (candidates != 0) {
+                long candidate = pos + Long.numberOfTrailingZeros(candidates);
+                if (verify(haystack, candidate)) {
+                    return candidate;
+                }
+                candidates &= candidates - 1;
+            }
+            pos += width;
+        }
+
+        long limit = to - pattern.length;
+        for (; pos <= limit; pos++) {
+            if ((byte) (haystack.get(ValueLayout.JAVA_BYTE, pos) | firstMask) == firstByte
+                    && (byte) (haystack.get(ValueLayout.JAVA_BYTE, pos + lastIndex) | lastMask) == lastByte
+                    && verify(haystack, pos)) {
+                return pos;
+            }
+        }
+        return -1;
+    }
+
+    private boolean verify(MemorySegment haystack, long pos) {
+        return ignoreAsciiCase
+                ? SubstringMatcher.matchesAtIgnoreAsciiCase(haystack, pos, pattern)
+                : SubstringMatcher.matchesAt(haystack, pos, pattern);
+    }
+}
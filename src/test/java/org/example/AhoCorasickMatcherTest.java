@@ -0,0 +1,112 @@
+package org.example;
+
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import java.io.ByteArrayOutputStream;
+import java.io.PrintStream;
+import java.lang.foreign.MemorySegment;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class AhoCorasickMatcherTest {
+
+    private static long find(ByteMatcher matcher, String text) {
+        MemorySegment haystack = MemorySegment.ofArray(text.getBytes(StandardCharsets.UTF_8));
+        return matcher.find(haystack, 0, haystack.byteSize());
+    }
+
+    private static List<byte[]> encode(String... patterns) {
+        List<byte[]> encoded = new ArrayList<>();
+        for (String pattern : patterns) {
+            encoded.add(pattern.getBytes(StandardCharsets.UTF_8));
+        }
+        return encoded;
+    }
+
+    @Test
+    void testFindsEarliestMatchAmongPatterns() {
+        ByteMatcher matcher = new AhoCorasickMatcher(encode("he", "she", "his", "hers"), false);
+
+        assertEquals(1, find(matcher, "ushers"));
+        assertEquals(-1, find(matcher, "no match"));
+    }
+
+    @Test
+    void testFollowsFailureLinks() {
+        ByteMatcher matcher = new AhoCorasickMatcher(encode("abcd", "bce"), false);
+
+        assertEquals(1, find(matcher, "abce"));
+    }
+
+    @Test
+    void testIgnoreAsciiCase() {
+        ByteMatcher matcher = new AhoCorasickMatcher(encode("error", "warn"), true);
+
+        assertEquals(4, find(matcher, "xyz WARNING"));
+        assertEquals(0, find(matcher, "ErRoR"));
+    }
+
+    @Test
+    void testManyPatternsSinglePass() {
+        List<String> patterns = new ArrayList<>();
+        for (int i = 0; i < 500; i++) {
+            patterns.add("req-" + (1000 + i * 7));
+        }
+        String content = "ok req-1001\nhit req-1700 here\nnone\nlast req-4493\n";
+
+        List<String> result = GrepService.grep(patterns, MemorySegment.ofArray(content.getBytes(StandardCharsets.UTF_8)), false);
+
+        assertEquals(Arrays.asList("hit req-1700 here", "last req-4493"), result);
+    }
+
+    @Test
+    void testSparseTrieMatchesLikeDenseTable() {
+        List<byte[]> patterns = encode("he", "she", "his", "hers", "abcd", "bce", "b", "hershey");
+        ByteMatcher dense = new AhoCorasickMatcher(patterns, true);
+        ByteMatcher sparse = new AhoCorasickMatcher(patterns, true, 0);
+
+        for (String text : List.of("ushers", "abce", "xyz", "ab", "HIS", "Hershey bar", "aaaabcd", "")) {
+            assertEquals(find(dense, text), find(sparse, text), text);
+        }
+    }
+
+    @Test
+    void testLargePatternSetStaysSparse() {
+        List<byte[]> patterns = new ArrayList<>();
+        for (int i = 0; i < 200_000; i++) {
+            String pattern = String.format("id-%08x-%08x", i * 2654435761L & 0xffffffffL, i);
+            patterns.add(pattern.getBytes(StandardCharsets.UTF_8));
+        }
+        ByteMatcher matcher = new AhoCorasickMatcher(patterns, false);
+        String needle = new String(patterns.get(123_456), StandardCharsets.UTF_8);
+
+        assertEquals(6, find(matcher, "prefix" + needle + "suffix"));
+        assertEquals(-1, find(matcher, "id-00000000-zzzzzzzz"));
+    }
+
+    @Test
+    void testPatternFileEndToEnd(@TempDir Path tempDir) throws Exception {
+        Path patternFile = tempDir.resolve("patterns.txt");
+        Files.writeString(patternFile, "alpha\nGAMMA\n");
+        Path inputFile = tempDir.resolve("input.txt");
+        Files.writeString(inputFile, "alpha one\nbeta two\ngamma three\n");
+
+        PrintStream originalOut = System.out;
+        ByteArrayOutputStream outContent = new ByteArrayOutputStream();
+        System.setOut(new PrintStream(outContent));
+        try {
+            Main.executeGrep(ArgumentParser.parse(new String[]{"-i", "-f", patternFile.toString(), inputFile.toString()}));
+        } finally {
+            System.setOut(originalOut);
+        }
+
+        assertEquals("alpha one\ngamma three\n", outContent.toString());
+    }
+}
@@ -2,6 +2,9 @@ package org.example;
 
 import org.junit.jupiter.api.Test;
 
+import java.nio.charset.StandardCharsets;
+import java.util.Arrays;
+
 import static org.junit.jupiter.api.Assertions.*;
 
 class ArgumentParserTest {
@@ -164,4 +167,188 @@ class ArgumentParserTest {
         assertFalse(options.isCaseInsensitive());
         assertEquals("search", options.getSearchString());
     }
-}
\ No newline at end of file
+
+    @Test
+    void testParseRepeatedPatternOption() {
+        String[] args = {"-e", "foo", "-e", "bar", "file.txt"};
+
+        GrepOptions options = ArgumentParser.parse(args);
+
+        assertEquals(Arrays.asList("foo", "bar"), options.getPatterns());
+        assertNull(options.getSearchString());
+        assertEquals("file.txt", options.getInputPath());
+    }
+
+    @Test
+    void testParsePatternFileOption() {
+        String[] args = {"-f", "patterns.txt", "-i", "file.txt"};
+
+        GrepOptions options = ArgumentParser.parse(args);
+
+        assertTrue(options.hasPatternFile());
+        assertEquals("patterns.txt", options.getPatternFile());
+        assertTrue(options.getPatterns().isEmpty());
+        assertEquals("file.txt", options.getInputPath());
+    }
+
+    @Test
+    void testParsePatternOptionSplitsOnNewline() {
+        GrepOptions options = ArgumentParser.parse(new String[]{"-e", "foo\nbar"});
+
+        assertEquals(Arrays.asList("foo", "bar"), options.getPatterns());
+        assertTrue(options.isStdinMode());
+    }
+
+    @Test
+    void testParsePatternOptionWithoutValue() {
+        IllegalArgumentException exception = assertThrows(
+                IllegalArgumentException.class,
+                () -> ArgumentParser.parse(new String[]{"-e"})
+        );
+
+        assertTrue(exception.getMessage().contains("option requires an argument -- 'e'"));
+    }
+
+    @Test
+    void testParseExtendedRegexFlag() {
+        GrepOptions options = ArgumentParser.parse(new String[]{"-E", "a|b", "file.txt"});
+
+        assertTrue(options.isExtendedRegex());
+        assertEquals("a|b", options.getSearchString());
+    }
+
+    @Test
+    void testParseMmapMode() {
+        GrepOptions defaults = ArgumentParser.parse(new String[]{"search", "file.txt"});
+        GrepOptions options = ArgumentParser.parse(new String[]{"--mmap=never", "search", "file.txt"});
+
+        assertEquals(MmapMode.AUTO, defaults.getMmapMode());
+        assertEquals(MmapMode.NEVER, options.getMmapMode());
+        assertEquals("search", options.getSearchString());
+    }
+
+    @Test
+    void testParseInvalidMmapMode() {
+        IllegalArgumentException exception = assertThrows(
+                IllegalArgumentException.class,
+                () -> ArgumentParser.parse(new String[]{"--mmap=sometimes", "search"})
+        );
+
+        assertTrue(exception.getMessage().contains("'sometimes'"));
+    }
+
+    @Test
+    void testParseRecursiveFlag() {
+        GrepOptions options = ArgumentParser.parse(new String[]{"-r", "search", "src"});
+
+        assertTrue(options.isRecursive());
+        assertEquals("src", options.getInputPath());
+    }
+
+    @Test
+    void testParseRecursiveDefaultsToWorkingDirectory() {
+        GrepOptions options = ArgumentParser.parse(new String[]{"-r", "search"});
+
+        assertEquals(".", options.getInputPath());
+        assertFalse(options.isStdinMode());
+    }
+
+    @Test
+    void testParseEarlyTerminationOptions() {
+        GrepOptions options = ArgumentParser.parse(new String[]{"-l", "-q", "-m", "3", "search", "file.txt"});
+
+        assertTrue(options.isListFiles());
+        assertTrue(options.isQuiet());
+        assertEquals(3, options.getMaxCount());
+        assertEquals(-1, ArgumentParser.parse(new String[]{"search"}).getMaxCount());
+    }
+
+    @Test
+    void testParseInvalidMaxCount() {
+        IllegalArgumentException exception = assertThrows(
+                IllegalArgumentException.class,
+                () -> ArgumentParser.parse(new String[]{"-m", "many", "search"})
+        );
+
+        assertEquals("./mygrep: invalid max count", exception.getMessage());
+    }
+
+    @Test
+    void testParseCountFlag() {
+        GrepOptions options = ArgumentParser.parse(new String[]{"-c", "search", "file.txt"});
+
+        assertTrue(options.isCountLines());
+        assertFalse(ArgumentParser.parse(new String[]{"search"}).isCountLines());
+    }
+
+    @Test
+    void testParseContextOptions() {
+        GrepOptions options = ArgumentParser.parse(new String[]{"-A", "2", "-C", "5", "search", "file.txt"});
+
+        assertEquals(2, options.getAfterContext());
+        assertEquals(5, options.getBeforeContext());
+        assertTrue(options.hasContext());
+        assertFalse(ArgumentParser.parse(new String[]{"search"}).hasContext());
+    }
+
+    @Test
+    void testParseInvalidContextLength() {
+        IllegalArgumentException exception = assertThrows(
+                IllegalArgumentException.class,
+                () -> ArgumentParser.parse(new String[]{"-B", "-1", "search"})
+        );
+
+        assertEquals("./mygrep: -1: invalid context length argument", exception.getMessage());
+    }
+
+    @Test
+    void testParseLineNumbersAndByteOffsets() {
+        GrepOptions options = ArgumentParser.parse(new String[]{"-n", "-b", "search", "file.txt"});
+
+        assertTrue(options.isLineNumbers());
+        assertTrue(options.isByteOffsets());
+        assertFalse(ArgumentParser.parse(new String[]{"search"}).isLineNumbers());
+    }
+
+    @Test
+    void testParseBinaryFiles() {
+        GrepOptions options = ArgumentParser.parse(new String[]{"--binary-files=without-match", "search", "file.txt"});
+
+        assertEquals(BinaryFiles.WITHOUT_MATCH, options.getBinaryFiles());
+        assertEquals(BinaryFiles.BINARY, ArgumentParser.parse(new String[]{"search"}).getBinaryFiles());
+        assertThrows(IllegalArgumentException.class,
+                () -> ArgumentParser.parse(new String[]{"--binary-files=maybe", "search"}));
+    }
+
+    @Test
+    void testParseEncoding() {
+        GrepOptions options = ArgumentParser.parse(new String[]{"--encoding=ISO-8859-1", "search", "file.txt"});
+
+        assertEquals(StandardCharsets.ISO_8859_1, options.getEncoding());
+        assertEquals(StandardCharsets.UTF_8, ArgumentParser.parse(new String[]{"search"}).getEncoding());
+        assertThrows(IllegalArgumentException.class,
+                () -> ArgumentParser.parse(new String[]{"--encoding=no-such-charset", "search"}));
+    }
+
+    @Test
+    void testParseRejectsEncodingsWithMultiByteNewlines() {
+        IllegalArgumentException exception = assertThrows(
+                IllegalArgumentException.class,
+                () -> ArgumentParser.parse(new String[]{"--encoding=UTF-16LE", "search"})
+        );
+
+        assertTrue(exception.getMessage().contains("'UTF-16LE' is not supported"));
+    }
+
+    @Test
+    void testParseDecompressFlag() {
+        assertTrue(ArgumentParser.parse(new String[]{"-z", "search", "file.gz"}).isDecompress());
+        assertFalse(ArgumentParser.parse(new String[]{"search"}).isDecompress());
+    }
+
+    @Test
+    void testParseNoIgnoreFlag() {
+        assertTrue(ArgumentParser.parse(new String[]{"-r", "--no-ignore", "search"}).isNoIgnore());
+        assertFalse(ArgumentParser.parse(new String[]{"-r", "search"}).isNoIgnore());
+    }
+}
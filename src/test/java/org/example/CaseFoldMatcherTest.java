@@ -0,0 +1,62 @@
+package org.example;
+
+import org.junit.jupiter.api.Test;
+
+import java.lang.foreign.MemorySegment;
+import java.nio.charset.StandardCharsets;
+import java.util.Arrays;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class CaseFoldMatcherTest {
+
+    private static List<String> grep(String pattern, String text) {
+        MemorySegment content = MemorySegment.ofArray(text.getBytes(StandardCharsets.UTF_8));
+        return GrepService.grep(pattern, content, true);
+    }
+
+    @Test
+    void testAsciiPatternMatchesAnyCase() {
+        List<String> result = grep("FoO", "foo\nFOO\nfOo bar\nbar\n");
+
+        assertEquals(Arrays.asList("foo", "FOO", "fOo bar"), result);
+    }
+
+    @Test
+    void testNonLettersAreNotFolded() {
+        List<String> result = grep("a@b", "A@B\na`b\nA`B\n");
+
+        assertEquals(List.of("A@B"), result);
+    }
+
+    @Test
+    void testLongPatternBeyondVectorThreshold() {
+        String pattern = "the quick brown fox jumps over the lazy dog";
+        List<String> result = grep(pattern, "THE QUICK BROWN FOX JUMPS OVER THE LAZY DOG\nthe quick brown fox\n");
+
+        assertEquals(List.of("THE QUICK BROWN FOX JUMPS OVER THE LAZY DOG"), result);
+    }
+
+    @Test
+    void testNonAsciiPatternUsesUnicodeFolding() {
+        List<String> result = grep("CAFÉ", "Café au lait\ncafe\nCAFÉ\n");
+
+        assertEquals(Arrays.asList("Café au lait", "CAFÉ"), result);
+    }
+
+    @Test
+    void testKelvinSignFoldsToAsciiK() {
+        List<String> result = grep("kelvin", "Kelvin scale\nkelvin\ncelsius\n");
+
+        assertEquals(Arrays.asList("Kelvin scale", "kelvin"), result);
+    }
+
+    @Test
+    void testFindReturnsMatchStartForAsciiPattern() {
+        ByteMatcher matcher = CaseFoldMatcher.compile("WORLD");
+        MemorySegment haystack = MemorySegment.ofArray("hello world".getBytes(StandardCharsets.UTF_8));
+
+        assertEquals(6, matcher.find(haystack, 0, haystack.byteSize()));
+    }
+}
@@ -0,0 +1,93 @@
+package org.example;
+
+import org.junit.jupiter.api.Test;
+
+import java.io.IOException;
+import java.lang.foreign.MemorySegment;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.ForkJoinPool;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class ChunkedGrepTest {
+
+    // More workers than the sandbox may have cores, so that chunks finish out of order
+    private static final ForkJoinPool POOL = new ForkJoinPool(4);
+
+    private static MemorySegment lines(int count) {
+        StringBuilder text = new StringBuilder();
+        for (int i = 0; i < count; i++) {
+            text.append(i % 7 == 0 ? "match " : "line ").append(i).append('\n');
+        }
+        return MemorySegment.ofArray(text.toString().getBytes(StandardCharsets.UTF_8));
+    }
+
+    private static List<String> grep(MemorySegment content, long chunkSize, int maxInFlight, GrepOptions options)
+            throws IOException {
+        List<String> result = new ArrayList<>();
+        LineOutput out = new LineOutput() {
+            private final StringBuilder line = new StringBuilder();
+
+            @Override
+            public void write(MemorySegment segment, long start, long end) {
+                line.append(GrepService.decodeLine(segment, start, end));
+            }
+
+            @Override
+            public void write(byte[] bytes, int offset, int length) {
+                line.append(new String(bytes, offset, length, StandardCharsets.UTF_8));
+            }
+
+            @Override
+            public void endLine() {
+                result.add(line.toString());
+                line.setLength(0);
+            }
+        };
+        MatchPrinter printer = new MatchPrinter(options, "f", false, out, new SearchStatus(options.isQuiet()));
+        ChunkedGrep.grep(GrepService.compile(List.of("match"), false), content, printer, POOL, chunkSize, maxInFlight);
+        printer.finish();
+        return result;
+    }
+
+    @Test
+    void testSameLinesInSameOrderAsSequentialSearch() throws IOException {
+        MemorySegment content = lines(1000);
+        List<String> expected = GrepService.grep(GrepService.compile(List.of("match"), false), content);
+
+        for (long chunkSize : new long[]{1, 5, 64, 1000, 1 << 20}) {
+            assertEquals(expected, grep(content, chunkSize, 3, GrepOptions.builder().build()), "chunk " + chunkSize);
+        }
+    }
+
+    @Test
+    void testContextAcrossChunkBoundaries() throws IOException {
+        MemorySegment content = lines(200);
+        GrepOptions options = GrepOptions.builder().context(2).build();
+
+        assertEquals(grep(content, 1 << 20, 1, options), grep(content, 10, 4, options));
+    }
+
+    @Test
+    void testStopsOnceTheSinkIsDone() throws IOException {
+        MemorySegment content = lines(1000);
+
+        assertEquals(List.of("match 0", "match 7", "match 14"),
+                grep(content, 16, 2, GrepOptions.builder().maxCount(3).build()));
+        assertEquals(List.of("3"), grep(content, 16, 2, GrepOptions.builder().countLines(true).maxCount(3).build()));
+        assertEquals(List.of("143"), grep(content, 16, 2, GrepOptions.builder().countLines(true).build()));
+    }
+
+    @Test
+    void testLineNumbersFromPerChunkNewlineCounts() throws IOException {
+        MemorySegment content = lines(500);
+        GrepOptions options = GrepOptions.builder().lineNumbers(true).context(1).build();
+
+        List<String> chunked = grep(content, 20, 4, options);
+
+        assertEquals(grep(content, 1 << 20, 1, options), chunked);
+        assertEquals(List.of("1:match 0", "2-line 1", "--", "7-line 6", "8:match 7"), chunked.subList(0, 5));
+    }
+}
@@ -0,0 +1,174 @@
+package org.example;
+
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Iterator;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class DirectoryWalkerTest {
+
+    private static List<Path> walk(Path root) {
+        List<Path> files = new ArrayList<>();
+        try (DirectoryWalker walker = new DirectoryWalker(root, 4, 2)) {
+            walker.forEach(files::add);
+        }
+        return files;
+    }
+
+    @Test
+    void testEmptyDirectory(@TempDir Path tempDir) {
+        assertTrue(walk(tempDir).isEmpty());
+    }
+
+    @Test
+    void testDepthFirstWithEachDirectorySorted(@TempDir Path tempDir) throws IOException {
+        Files.createDirectories(tempDir.resolve("b/d"));
+        Files.createDirectories(tempDir.resolve("a"));
+        Files.writeString(tempDir.resolve("c.txt"), "c");
+        Files.writeString(tempDir.resolve("b/z.txt"), "z");
+        Files.writeString(tempDir.resolve("b/d/y.txt"), "y");
+        Files.writeString(tempDir.resolve("a/x.txt"), "x");
+        Files.writeString(tempDir.resolve("0.txt"), "0");
+
+        List<Path> files = walk(tempDir);
+
+        assertEquals(Arrays.asList(
+                tempDir.resolve("0.txt"),
+                tempDir.resolve("a/x.txt"),
+                tempDir.resolve("b/d/y.txt"),
+                tempDir.resolve("b/z.txt"),
+                tempDir.resolve("c.txt")
+        ), files);
+    }
+
+    @Test
+    void testOrderMatchesSortedPathsOfWholeTree(@TempDir Path tempDir) throws IOException {
+        Files.createDirectories(tempDir.resolve("a/b"));
+        Files.createDirectories(tempDir.resolve("b"));
+        Files.writeString(tempDir.resolve("a/b.txt"), "x");
+        Files.writeString(tempDir.resolve("a/b/c.txt"), "x");
+        Files.writeString(tempDir.resolve("a.txt"), "x");
+        Files.writeString(tempDir.resolve("a-b.txt"), "x");
+        Files.writeString(tempDir.resolve("a0.txt"), "x");
+        Files.writeString(tempDir.resolve("b/x.txt"), "x");
+        Files.writeString(tempDir.resolve("b-c.txt"), "x");
+
+        List<Path> files = walk(tempDir);
+
+        assertEquals(Arrays.asList(
+                tempDir.resolve("a-b.txt"),
+                tempDir.resolve("a.txt"),
+                tempDir.resolve("a/b.txt"),
+                tempDir.resolve("a/b/c.txt"),
+                tempDir.resolve("a0.txt"),
+                tempDir.resolve("b-c.txt"),
+                tempDir.resolve("b/x.txt")
+        ), files);
+        assertEquals(DirectoryReader.listFilesRecursively(tempDir.toString()), files);
+    }
+
+    @Test
+    void testManyFilesThroughSmallQueue(@TempDir Path tempDir) throws IOException {
+        List<Path> expected = new ArrayList<>();
+        for (int d = 0; d < 20; d++) {
+            Path dir = Files.createDirectory(tempDir.resolve(String.format("dir%02d", d)));
+            for (int f = 0; f < 20; f++) {
+                expected.add(Files.writeString(dir.resolve(String.format("file%02d.txt", f)), "content"));
+            }
+        }
+
+        assertEquals(expected, walk(tempDir));
+    }
+
+    @Test
+    void testWideAndDeepTreesWithFewListingsAhead(@TempDir Path tempDir) throws IOException {
+        List<Path> expected = new ArrayList<>();
+        Path deep = tempDir.resolve("a");
+        for (int d = 0; d < 30; d++) {
+            deep = deep.resolve("d" + d);
+        }
+        expected.add(Files.writeString(Files.createDirectories(deep).resolve("leaf.txt"), "content"));
+        for (int d = 0; d < 200; d++) {
+            Path dir = Files.createDirectories(tempDir.resolve(String.format("b/dir%03d", d)));
+            expected.add(Files.writeString(dir.resolve("file.txt"), "content"));
+        }
+
+        List<Path> files = new ArrayList<>();
+        try (DirectoryWalker walker = new DirectoryWalker(tempDir, IgnoreRules.NONE, 4, 8, 3)) {
+            walker.forEach(files::add);
+        }
+
+        assertEquals(expected, files);
+    }
+
+    @Test
+    void testConsumerCanStopEarly(@TempDir Path tempDir) throws IOException {
+        for (int i = 0; i < 100; i++) {
+            Files.writeString(tempDir.resolve(String.format("file%03d.txt", i)), "content");
+        }
+
+        try (DirectoryWalker walker = new DirectoryWalker(tempDir, 2, 1)) {
+            Iterator<Path> files = walker.iterator();
+
+            assertEquals(tempDir.resolve("file000.txt"), files.next());
+        }
+    }
+
+    @Test
+    void testIgnoredDirectoriesArePruned(@TempDir Path tempDir) throws IOException {
+        Files.createDirectories(tempDir.resolve(".git/objects"));
+        Files.createDirectories(tempDir.resolve("node_modules/lib"));
+        Files.createDirectories(tempDir.resolve("src/target"));
+        Files.writeString(tempDir.resolve(".git/objects/pack"), "x");
+        Files.writeString(tempDir.resolve("node_modules/lib/index.js"), "x");
+        Files.writeString(tempDir.resolve("src/target/Main.class"), "x");
+        Files.writeString(tempDir.resolve("src/Main.java"), "x");
+        Files.writeString(tempDir.resolve("src/.ignore"), "target/\n");
+        Files.writeString(tempDir.resolve(".gitignore"), "node_modules\n");
+
+        assertEquals(Arrays.asList(
+                tempDir.resolve(".gitignore"),
+                tempDir.resolve("src/.ignore"),
+                tempDir.resolve("src/Main.java")
+        ), walk(tempDir));
+
+        List<Path> all = new ArrayList<>();
+        try (DirectoryWalker walker = new DirectoryWalker(tempDir, IgnoreRules.NONE, 2, 4)) {
+            walker.forEach(all::add);
+        }
+        assertEquals(6, all.size());
+    }
+
+    @Test
+    void testCloseEndsWalkerWaitingForListings(@TempDir Path tempDir) throws Exception {
+        for (int d = 0; d < 200; d++) {
+            Path dir = Files.createDirectories(tempDir.resolve(String.format("dir%03d/sub", d)));
+            Files.writeString(dir.resolve("file.txt"), "content");
+        }
+
+        // A single listing thread and a one-slot queue leave the walker waiting when the consumer stops
+        DirectoryWalker walker = new DirectoryWalker(tempDir, IgnoreRules.NONE, 1, 1, 64);
+        assertTrue(walker.iterator().hasNext());
+        Thread closer = new Thread(walker::close);
+        closer.start();
+        closer.join(10_000);
+
+        assertFalse(closer.isAlive());
+    }
+
+    @Test
+    void testWalkFilesRecursivelyRejectsMissingDirectory() {
+        IOException exception = assertThrows(IOException.class,
+                () -> DirectoryReader.walkFilesRecursively("nonexistent_dir"));
+
+        assertTrue(exception.getMessage().contains("does not exist"));
+    }
+}
@@ -4,6 +4,8 @@ import org.junit.jupiter.api.Test;
 import org.junit.jupiter.api.io.TempDir;
 
 import java.io.IOException;
+import java.lang.foreign.Arena;
+import java.lang.foreign.MemorySegment;
 import java.nio.file.Files;
 import java.nio.file.Path;
 import java.util.List;
@@ -52,4 +54,49 @@ class FileReadingTest {
             Main.readFile("non_existent_file.txt");
         });
     }
-}
\ No newline at end of file
+
+    @Test
+    void testMapFileExposesFileBytes(@TempDir Path tempDir) throws IOException, GrepException {
+        Path file = tempDir.resolve("mapped.txt");
+        Files.writeString(file, "first line\nsecond line\n");
+
+        try (Arena arena = Arena.ofConfined()) {
+            MemorySegment content = Main.mapFile(file, arena);
+
+            assertEquals(Files.size(file), content.byteSize());
+            assertEquals(List.of("second line"), GrepService.grep("second", content, false));
+        }
+    }
+
+    @Test
+    void testMapEmptyFile(@TempDir Path tempDir) throws IOException, GrepException {
+        Path file = tempDir.resolve("empty.txt");
+        Files.createFile(file);
+
+        try (Arena arena = Arena.ofConfined()) {
+            MemorySegment content = Main.mapFile(file, arena);
+
+            assertEquals(0, content.byteSize());
+            assertTrue(GrepService.grep("", content, false).isEmpty());
+        }
+    }
+
+    @Test
+    void testMapNonExistentFile() {
+        GrepException exception = assertThrows(GrepException.class, () -> {
+            try (Arena arena = Arena.ofConfined()) {
+                Main.mapFile(Path.of("nonexistent_file.txt"), arena);
+            }
+        });
+
+        assertTrue(exception.getMessage().contains("No such file or directory"));
+    }
+
+    @Test
+    void testReadFileReplacesInvalidBytes(@TempDir Path tempDir) throws IOException, GrepException {
+        Path file = tempDir.resolve("patterns.txt");
+        Files.write(file, new byte[]{'a', (byte) 0xff, '\n', 'b', '\n'});
+
+        assertEquals(List.of("a\uFFFD", "b"), Main.readFile(file.toString()));
+    }
+}
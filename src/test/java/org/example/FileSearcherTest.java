@@ -0,0 +1,134 @@
+package org.example;
+
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.zip.GZIPOutputStream;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class FileSearcherTest {
+
+    private static List<String> search(FileSearcher searcher, String pattern, Path file)
+            throws IOException, GrepException {
+        List<String> result = new ArrayList<>();
+        searcher.search(GrepService.compile(List.of(pattern), false), file,
+                (content, start, end) -> result.add(GrepService.decodeLine(content, start, end)));
+        return result;
+    }
+
+    @Test
+    void testAutoMapsOnlyAboveThreshold() {
+        FileSearcher searcher = new FileSearcher(MmapMode.AUTO, 1000);
+
+        assertFalse(searcher.shouldMap(0));
+        assertFalse(searcher.shouldMap(1000));
+        assertTrue(searcher.shouldMap(1001));
+    }
+
+    @Test
+    void testPinnedModesIgnoreSize() {
+        assertTrue(new FileSearcher(MmapMode.ALWAYS).shouldMap(0));
+        assertFalse(new FileSearcher(MmapMode.NEVER).shouldMap(Long.MAX_VALUE));
+    }
+
+    @Test
+    void testEveryModeFindsTheSameLines(@TempDir Path tempDir) throws IOException, GrepException {
+        Path file = tempDir.resolve("input.txt");
+        Files.writeString(file, "alpha\nbeta match\ngamma\nmatch delta");
+
+        for (MmapMode mode : MmapMode.values()) {
+            // A tiny threshold sends AUTO to the mapped path and NEVER to the streaming path
+            List<String> result = search(new FileSearcher(mode, 4), "match", file);
+
+            assertEquals(Arrays.asList("beta match", "match delta"), result, mode.name());
+        }
+    }
+
+    @Test
+    void testBufferGrowsForLargerFiles(@TempDir Path tempDir) throws IOException, GrepException {
+        FileSearcher searcher = new FileSearcher(MmapMode.NEVER, 1024 * 1024);
+        Path small = tempDir.resolve("small.txt");
+        Files.writeString(small, "needle\n");
+        Path large = tempDir.resolve("large.txt");
+        Files.writeString(large, "x".repeat(200_000) + "\nlast needle\n");
+
+        assertEquals(List.of("needle"), search(searcher, "needle", small));
+        assertEquals(List.of("last needle"), search(searcher, "needle", large));
+        assertEquals(List.of("needle"), search(searcher, "needle", small));
+    }
+
+    @Test
+    void testEmptyFile(@TempDir Path tempDir) throws IOException, GrepException {
+        Path file = tempDir.resolve("empty.txt");
+        Files.createFile(file);
+
+        assertTrue(search(new FileSearcher(MmapMode.AUTO), "", file).isEmpty());
+        assertTrue(search(new FileSearcher(MmapMode.ALWAYS), "", file).isEmpty());
+    }
+
+    @Test
+    void testMissingFile(@TempDir Path tempDir) {
+        GrepException exception = assertThrows(GrepException.class,
+                () -> search(new FileSearcher(MmapMode.AUTO), "x", tempDir.resolve("missing.txt")));
+
+        assertTrue(exception.getMessage().contains("No such file or directory"));
+    }
+
+    @Test
+    void testChunkedSearchAboveChunkThreshold(@TempDir Path tempDir) throws IOException, GrepException {
+        Path file = tempDir.resolve("input.txt");
+        Files.writeString(file, "alpha\nbeta match\ngamma\nmatch delta");
+
+        List<String> result = search(new FileSearcher(MmapMode.AUTO, 4, 8), "match", file);
+
+        assertEquals(Arrays.asList("beta match", "match delta"), result);
+    }
+
+    private static byte[] gzip(String text) throws IOException {
+        ByteArrayOutputStream bytes = new ByteArrayOutputStream();
+        try (GZIPOutputStream out = new GZIPOutputStream(bytes)) {
+            out.write(text.getBytes(StandardCharsets.UTF_8));
+        }
+        return bytes.toByteArray();
+    }
+
+    @Test
+    void testDecompressesGzipFilesByMagicBytes(@TempDir Path tempDir) throws IOException, GrepException {
+        Path compressed = tempDir.resolve("app.log.1");
+        ByteArrayOutputStream members = new ByteArrayOutputStream();
+        members.write(gzip("alpha\nbeta match\n"));
+        members.write(gzip("match gamma\n"));
+        Files.write(compressed, members.toByteArray());
+        Path plain = tempDir.resolve("plain.txt");
+        Files.writeString(plain, "match plain\n");
+
+        FileSearcher searcher = new FileSearcher(MmapMode.AUTO, FileSearcher.DEFAULT_MMAP_THRESHOLD,
+                FileSearcher.NO_CHUNKS, true);
+
+        assertEquals(Arrays.asList("beta match", "match gamma"), search(searcher, "match", compressed));
+        assertEquals(List.of("match plain"), search(searcher, "match", plain));
+        assertTrue(search(new FileSearcher(MmapMode.AUTO), "match", compressed).isEmpty());
+    }
+
+    @Test
+    void testTruncatedGzipFileIsReported(@TempDir Path tempDir) throws IOException {
+        Path file = tempDir.resolve("truncated.gz");
+        byte[] compressed = gzip("match\n".repeat(1000));
+        Files.write(file, Arrays.copyOf(compressed, compressed.length / 2));
+        FileSearcher searcher = new FileSearcher(MmapMode.AUTO, FileSearcher.DEFAULT_MMAP_THRESHOLD,
+                FileSearcher.NO_CHUNKS, true);
+
+        GrepException exception = assertThrows(GrepException.class, () -> search(searcher, "match", file));
+
+        assertTrue(exception.getMessage().startsWith("./mygrep: " + file + ": "));
+    }
+}
@@ -4,11 +4,21 @@ import org.junit.jupiter.api.Test;
 import org.junit.jupiter.api.AfterEach;
 import org.junit.jupiter.api.BeforeEach;
 
+import java.io.ByteArrayInputStream;
 import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.PipedInputStream;
+import java.io.PipedOutputStream;
 import java.io.PrintStream;
+import java.lang.foreign.MemorySegment;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
 import java.util.Arrays;
 import java.util.Collections;
 import java.util.List;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
 
 import static org.junit.jupiter.api.Assertions.*;
 
@@ -137,4 +147,140 @@ class GrepServiceTest {
 
         assertTrue(result.isEmpty());
     }
-}
\ No newline at end of file
+
+    @Test
+    void testGrepBytesOnlyReturnsMatchingLines() {
+        MemorySegment content = MemorySegment.ofArray(
+                "lorem ipsum\ndolor sit amet\r\nlorem again\nlast lorem".getBytes(StandardCharsets.UTF_8));
+
+        List<String> result = GrepService.grep("lorem", content, false);
+
+        assertEquals(Arrays.asList("lorem ipsum", "lorem again", "last lorem"), result);
+    }
+
+    @Test
+    void testGrepBytesEmptySearchStringMatchesEveryLine() {
+        MemorySegment content = MemorySegment.ofArray("a\n\nb\n".getBytes(StandardCharsets.UTF_8));
+
+        List<String> result = GrepService.grep("", content, false);
+
+        assertEquals(Arrays.asList("a", "", "b"), result);
+    }
+
+    @Test
+    void testGrepBytesDecodesUtf8Lines() {
+        MemorySegment content = MemorySegment.ofArray("café au lait\ntea\n".getBytes(StandardCharsets.UTF_8));
+
+        List<String> result = GrepService.grep("café", content, false);
+
+        assertEquals(List.of("café au lait"), result);
+    }
+
+    @Test
+    void testGrepStreamHandlesLinesSplitAcrossReads() throws IOException {
+        byte[] input = "lorem ipsum\ndolor\r\nlorem again\nlast lorem".getBytes(StandardCharsets.UTF_8);
+        List<String> result = new ArrayList<>();
+
+        // Hands out three bytes per read so that lines straddle block boundaries
+        InputStream trickle = new ByteArrayInputStream(input) {
+            @Override
+            public synchronized int read(byte[] b, int off, int len) {
+                return super.read(b, off, Math.min(len, 3));
+            }
+        };
+        GrepService.grep(GrepService.compile(List.of("lorem"), false), trickle,
+                (content, start, end) -> result.add(GrepService.decodeLine(content, start, end)));
+
+        assertEquals(Arrays.asList("lorem ipsum", "lorem again", "last lorem"), result);
+    }
+
+    @Test
+    void testGrepStreamLineLongerThanBlock() throws IOException {
+        String longLine = "x".repeat(3 * GrepService.STREAM_BLOCK_SIZE) + "needle";
+        byte[] input = ("short\n" + longLine + "\nneedle\n").getBytes(StandardCharsets.UTF_8);
+        List<String> result = new ArrayList<>();
+
+        GrepService.grep(GrepService.compile(List.of("needle"), false), new ByteArrayInputStream(input),
+                (content, start, end) -> result.add(GrepService.decodeLine(content, start, end)));
+
+        assertEquals(Arrays.asList(longLine, "needle"), result);
+    }
+
+    @Test
+    void testCountMatchingLines() {
+        MemorySegment content = MemorySegment.ofArray(
+                "lorem lorem\ndolor\nlorem again\n\nlast lorem".getBytes(StandardCharsets.UTF_8));
+
+        assertEquals(3, GrepService.count(GrepService.compile(List.of("lorem"), false), content));
+        assertEquals(0, GrepService.count(GrepService.compile(List.of("absent"), false), content));
+    }
+
+    @Test
+    void testNulInFirstBlockMarksInputBinary() throws IOException {
+        byte[] late = ("match\n" + "x".repeat(GrepService.STREAM_BLOCK_SIZE) + "\0\n").getBytes(StandardCharsets.UTF_8);
+        byte[] early = "match\0\nmatch\n".getBytes(StandardCharsets.UTF_8);
+        boolean[] binary = new boolean[1];
+        MatchSink sink = new MatchSink() {
+            @Override
+            public void accept(MemorySegment content, long lineStart, long lineEnd) {
+            }
+
+            @Override
+            public void binaryInput() {
+                binary[0] = true;
+            }
+        };
+
+        assertFalse(GrepService.isBinary(MemorySegment.ofArray(late), late.length));
+        assertTrue(GrepService.isBinary(MemorySegment.ofArray(early), early.length));
+
+        GrepService.grep(GrepService.compile(List.of("match"), false), new ByteArrayInputStream(early), sink);
+        assertTrue(binary[0]);
+    }
+
+    @Test
+    void testGrepStreamReportsMatchesBeforeInputEnds() throws Exception {
+        PipedOutputStream writer = new PipedOutputStream();
+        PipedInputStream pipe = new PipedInputStream(writer);
+        CountDownLatch firstMatch = new CountDownLatch(1);
+        List<String> result = new ArrayList<>();
+
+        // The second line is only written once the first match has come through, as with tail -f
+        Thread producer = new Thread(() -> {
+            try {
+                writer.write("match 1\nno\n".getBytes(StandardCharsets.UTF_8));
+                writer.flush();
+                if (firstMatch.await(10, TimeUnit.SECONDS)) {
+                    writer.write("match 2\n".getBytes(StandardCharsets.UTF_8));
+                }
+                writer.close();
+            } catch (IOException | InterruptedException e) {
+                throw new RuntimeException(e);
+            }
+        });
+        producer.start();
+
+        GrepService.grep(GrepService.compile(List.of("match"), false), pipe, (content, start, end) -> {
+            result.add(GrepService.decodeLine(content, start, end));
+            firstMatch.countDown();
+        });
+        producer.join();
+
+        assertEquals(Arrays.asList("match 1", "match 2"), result);
+    }
+
+    @Test
+    void testCompileEncodesPatternsIntoInputCharset() {
+        MemorySegment content = MemorySegment.ofArray("café au lait\nCAFÉ\ntea\n".getBytes(StandardCharsets.ISO_8859_1));
+
+        ByteMatcher matcher = GrepService.compile(List.of("café"), false, false, StandardCharsets.ISO_8859_1);
+        assertEquals(1, GrepService.count(matcher, content));
+
+        ByteMatcher folded = GrepService.compile(List.of("caf"), true, false, StandardCharsets.ISO_8859_1);
+        assertEquals(2, GrepService.count(folded, content));
+        assertThrows(IllegalArgumentException.class,
+                () -> GrepService.compile(List.of("café"), true, false, StandardCharsets.ISO_8859_1));
+        assertThrows(IllegalArgumentException.class,
+                () -> GrepService.compile(List.of("a|b"), false, true, StandardCharsets.ISO_8859_1));
+    }
+}
@@ -0,0 +1,104 @@
+package org.example;
+
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class IgnoreRulesTest {
+
+    private static IgnoreRules gitignore(Path directory, String content) throws IOException {
+        Files.writeString(directory.resolve(IgnoreRules.GITIGNORE), content);
+        return IgnoreRules.defaults(directory).forDirectory(directory, true, false);
+    }
+
+    @Test
+    void testNamesMatchAtAnyDepth(@TempDir Path tempDir) throws IOException {
+        IgnoreRules rules = gitignore(tempDir, "# build output\n\nnode_modules\ntarget/\n*.class\n");
+
+        assertTrue(rules.isIgnored(tempDir.resolve("node_modules"), true));
+        assertTrue(rules.isIgnored(tempDir.resolve("a/b/node_modules"), false));
+        assertTrue(rules.isIgnored(tempDir.resolve("a/target"), true));
+        assertFalse(rules.isIgnored(tempDir.resolve("a/target"), false));
+        assertTrue(rules.isIgnored(tempDir.resolve("a/Main.class"), false));
+        assertFalse(rules.isIgnored(tempDir.resolve("a/Main.java"), false));
+        assertFalse(rules.isIgnored(tempDir.resolve("# build output"), false));
+    }
+
+    @Test
+    void testGitDirectoryIsIgnoredByDefault(@TempDir Path tempDir) {
+        IgnoreRules rules = IgnoreRules.defaults(tempDir);
+
+        assertTrue(rules.isIgnored(tempDir.resolve(".git"), true));
+        assertTrue(rules.isIgnored(tempDir.resolve("sub/.git"), true));
+        assertFalse(IgnoreRules.NONE.isIgnored(tempDir.resolve(".git"), true));
+    }
+
+    @Test
+    void testSlashAnchorsToIgnoreFileDirectory(@TempDir Path tempDir) throws IOException {
+        IgnoreRules rules = gitignore(tempDir, "/build\ndoc/*.html\n**/gen/*.java\nlogs/**\na/**/z\n");
+
+        assertTrue(rules.isIgnored(tempDir.resolve("build"), true));
+        assertFalse(rules.isIgnored(tempDir.resolve("sub/build"), true));
+        assertTrue(rules.isIgnored(tempDir.resolve("doc/index.html"), false));
+        assertFalse(rules.isIgnored(tempDir.resolve("doc/api/index.html"), false));
+        assertTrue(rules.isIgnored(tempDir.resolve("gen/A.java"), false));
+        assertTrue(rules.isIgnored(tempDir.resolve("x/y/gen/A.java"), false));
+        assertTrue(rules.isIgnored(tempDir.resolve("logs/2024/app.log"), false));
+        assertFalse(rules.isIgnored(tempDir.resolve("logs"), true));
+        assertTrue(rules.isIgnored(tempDir.resolve("a/z"), false));
+        assertTrue(rules.isIgnored(tempDir.resolve("a/b/c/z"), false));
+    }
+
+    @Test
+    void testWildcards(@TempDir Path tempDir) throws IOException {
+        IgnoreRules rules = gitignore(tempDir, "file?.txt\n[abc]*.log\n[!x]y\n\\#hash\n");
+
+        assertTrue(rules.isIgnored(tempDir.resolve("file1.txt"), false));
+        assertFalse(rules.isIgnored(tempDir.resolve("file12.txt"), false));
+        assertTrue(rules.isIgnored(tempDir.resolve("b-debug.log"), false));
+        assertFalse(rules.isIgnored(tempDir.resolve("d-debug.log"), false));
+        assertTrue(rules.isIgnored(tempDir.resolve("ay"), false));
+        assertFalse(rules.isIgnored(tempDir.resolve("xy"), false));
+        assertTrue(rules.isIgnored(tempDir.resolve("#hash"), false));
+    }
+
+    @Test
+    void testLastMatchingRuleWins(@TempDir Path tempDir) throws IOException {
+        IgnoreRules rules = gitignore(tempDir, "*.log\n!keep.log\nkeep.log\n!important.log\n");
+
+        assertTrue(rules.isIgnored(tempDir.resolve("debug.log"), false));
+        assertTrue(rules.isIgnored(tempDir.resolve("keep.log"), false));
+        assertFalse(rules.isIgnored(tempDir.resolve("important.log"), false));
+    }
+
+    @Test
+    void testNestedFilesOverrideParentAndIgnoreOverridesGitignore(@TempDir Path tempDir) throws IOException {
+        Path sub = Files.createDirectories(tempDir.resolve("sub"));
+        IgnoreRules root = gitignore(tempDir, "*.txt\n");
+        Files.writeString(sub.resolve(IgnoreRules.GITIGNORE), "!notes.txt\n");
+        Files.writeString(sub.resolve(IgnoreRules.IGNORE), "secret.txt\n!secret.*\n/local\n");
+        IgnoreRules rules = root.forDirectory(sub, true, true);
+
+        assertTrue(rules.isIgnored(sub.resolve("other.txt"), false));
+        assertFalse(rules.isIgnored(sub.resolve("notes.txt"), false));
+        assertFalse(rules.isIgnored(sub.resolve("secret.txt"), false));
+        assertTrue(rules.isIgnored(sub.resolve("local"), false));
+        assertFalse(rules.isIgnored(sub.resolve("deeper/local"), false));
+        assertTrue(rules.isIgnored(tempDir.resolve("top.txt"), false));
+    }
+
+    @Test
+    void testNoneReadsNoFiles(@TempDir Path tempDir) throws IOException {
+        Files.writeString(tempDir.resolve(IgnoreRules.GITIGNORE), "*\n");
+
+        IgnoreRules rules = IgnoreRules.NONE.forDirectory(tempDir, true, false);
+
+        assertSame(IgnoreRules.NONE, rules);
+        assertFalse(rules.isIgnored(tempDir.resolve("a.txt"), false));
+    }
+}
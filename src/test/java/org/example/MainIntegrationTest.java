@@ -9,9 +9,11 @@ import java.io.ByteArrayInputStream;
 import java.io.ByteArrayOutputStream;
 import java.io.InputStream;
 import java.io.PrintStream;
+import java.nio.charset.StandardCharsets;
 import java.nio.file.Files;
 import java.nio.file.Path;
 import java.util.List;
+import java.util.zip.GZIPOutputStream;
 
 import static org.junit.jupiter.api.Assertions.*;
 
@@ -427,4 +429,193 @@ class MainIntegrationTest {
         assertTrue(opts1.isCaseInsensitive());
         assertEquals(outputFile.toString(), opts1.getOutputFile());
     }
-}
\ No newline at end of file
+
+    @Test
+    void testRecursiveSearchPrefixesFilenamesInWalkOrder(@TempDir Path tempDir) throws Exception {
+        Files.createDirectories(tempDir.resolve("src/nested"));
+        Files.writeString(tempDir.resolve("b.txt"), "lorem in b\nnothing\n");
+        Files.writeString(tempDir.resolve("src/a.txt"), "nothing\nlorem in a\n");
+        Files.writeString(tempDir.resolve("src/nested/c.txt"), "lorem in c\n");
+
+        Main.executeGrep(ArgumentParser.parse(new String[]{"-r", "lorem", tempDir.toString()}));
+
+        assertEquals(
+                tempDir.resolve("b.txt") + ":lorem in b\n"
+                        + tempDir.resolve("src/a.txt") + ":lorem in a\n"
+                        + tempDir.resolve("src/nested/c.txt") + ":lorem in c\n",
+                outContent.toString()
+        );
+    }
+
+    @Test
+    void testRecursiveSearchOnSingleFileHasNoPrefix(@TempDir Path tempDir) throws Exception {
+        Path inputFile = tempDir.resolve("input.txt");
+        Files.writeString(inputFile, "lorem ipsum\ndolor\n");
+
+        Main.executeGrep(ArgumentParser.parse(new String[]{"-r", "lorem", inputFile.toString()}));
+
+        assertEquals("lorem ipsum\n", outContent.toString());
+    }
+
+    @Test
+    void testListFilesWithRecursiveSearch(@TempDir Path tempDir) throws Exception {
+        Files.writeString(tempDir.resolve("a.txt"), "lorem\nlorem\n");
+        Files.writeString(tempDir.resolve("b.txt"), "nothing\n");
+        Files.writeString(tempDir.resolve("c.txt"), "lorem ipsum\n");
+
+        boolean matched = Main.executeGrep(ArgumentParser.parse(new String[]{"-r", "-l", "lorem", tempDir.toString()}));
+
+        assertTrue(matched);
+        assertEquals(tempDir.resolve("a.txt") + "\n" + tempDir.resolve("c.txt") + "\n", outContent.toString());
+    }
+
+    @Test
+    void testQuietReportsOnlyWhetherSomethingMatched(@TempDir Path tempDir) throws Exception {
+        Path inputFile = tempDir.resolve("input.txt");
+        Files.writeString(inputFile, "lorem ipsum\n");
+
+        assertTrue(Main.executeGrep(ArgumentParser.parse(new String[]{"-q", "lorem", inputFile.toString()})));
+        assertFalse(Main.executeGrep(ArgumentParser.parse(new String[]{"-q", "absent", inputFile.toString()})));
+        assertTrue(Main.executeGrep(ArgumentParser.parse(new String[]{"-r", "-q", "lorem", tempDir.toString()})));
+        assertEquals("", outContent.toString());
+    }
+
+    @Test
+    void testMaxCountLimitsEachFile(@TempDir Path tempDir) throws Exception {
+        Path inputFile = tempDir.resolve("input.txt");
+        Files.writeString(inputFile, "lorem 1\nlorem 2\nlorem 3\n");
+
+        Main.executeGrep(ArgumentParser.parse(new String[]{"-m", "2", "lorem", inputFile.toString()}));
+
+        assertEquals("lorem 1\nlorem 2\n", outContent.toString());
+    }
+
+    @Test
+    void testCountWithRecursiveSearchIncludesFilesWithoutMatches(@TempDir Path tempDir) throws Exception {
+        Files.writeString(tempDir.resolve("a.txt"), "lorem\nlorem ipsum\nno\n");
+        Files.writeString(tempDir.resolve("b.txt"), "nothing\n");
+
+        boolean matched = Main.executeGrep(ArgumentParser.parse(new String[]{"-r", "-c", "lorem", tempDir.toString()}));
+
+        assertTrue(matched);
+        assertEquals(tempDir.resolve("a.txt") + ":2\n" + tempDir.resolve("b.txt") + ":0\n", outContent.toString());
+    }
+
+    @Test
+    void testCountRespectsMaxCount(@TempDir Path tempDir) throws Exception {
+        Path inputFile = tempDir.resolve("input.txt");
+        Files.writeString(inputFile, "lorem 1\nlorem 2\nlorem 3\n");
+
+        Main.executeGrep(ArgumentParser.parse(new String[]{"-c", "-m", "2", "lorem", inputFile.toString()}));
+
+        assertEquals("2\n", outContent.toString());
+    }
+
+    @Test
+    void testContextSeparatesGroupsAcrossFiles(@TempDir Path tempDir) throws Exception {
+        Files.writeString(tempDir.resolve("a.txt"), "one\nlorem\ntwo\nthree\n");
+        Files.writeString(tempDir.resolve("b.txt"), "nothing\n");
+        Files.writeString(tempDir.resolve("c.txt"), "lorem\nfour\n");
+
+        Main.executeGrep(ArgumentParser.parse(new String[]{"-r", "-C", "1", "lorem", tempDir.toString()}));
+
+        Path a = tempDir.resolve("a.txt");
+        Path c = tempDir.resolve("c.txt");
+        assertEquals(a + "-one\n" + a + ":lorem\n" + a + "-two\n--\n" + c + ":lorem\n" + c + "-four\n",
+                outContent.toString());
+    }
+
+    @Test
+    void testLineNumbersWithRecursiveSearch(@TempDir Path tempDir) throws Exception {
+        Files.writeString(tempDir.resolve("a.txt"), "one\ntwo lorem\n");
+
+        Main.executeGrep(ArgumentParser.parse(new String[]{"-r", "-n", "lorem", tempDir.toString()}));
+
+        assertEquals(tempDir.resolve("a.txt") + ":2:two lorem\n", outContent.toString());
+    }
+
+    @Test
+    void testRecursiveSearchReportsBinaryFiles(@TempDir Path tempDir) throws Exception {
+        Files.write(tempDir.resolve("a.bin"), new byte[]{'l', 'o', 'r', 'e', 'm', 0, '\n'});
+        Files.writeString(tempDir.resolve("b.txt"), "lorem\n");
+
+        Main.executeGrep(ArgumentParser.parse(new String[]{"-r", "lorem", tempDir.toString()}));
+        assertEquals("Binary file " + tempDir.resolve("a.bin") + " matches\n" + tempDir.resolve("b.txt") + ":lorem\n",
+                outContent.toString());
+
+        outContent.reset();
+        Main.executeGrep(ArgumentParser.parse(
+                new String[]{"-r", "--binary-files=without-match", "lorem", tempDir.toString()}));
+        assertEquals(tempDir.resolve("b.txt") + ":lorem\n", outContent.toString());
+    }
+
+    @Test
+    void testRecursiveSearchSkipsIgnoredFiles(@TempDir Path tempDir) throws Exception {
+        Files.createDirectories(tempDir.resolve("build"));
+        Files.writeString(tempDir.resolve(".gitignore"), "build/\n*.log\n");
+        Files.writeString(tempDir.resolve("build/out.txt"), "lorem\n");
+        Files.writeString(tempDir.resolve("debug.log"), "lorem\n");
+        Files.writeString(tempDir.resolve("main.txt"), "lorem\n");
+
+        Main.executeGrep(ArgumentParser.parse(new String[]{"-r", "-l", "lorem", tempDir.toString()}));
+        assertEquals(tempDir.resolve("main.txt") + "\n", outContent.toString());
+
+        outContent.reset();
+        Main.executeGrep(ArgumentParser.parse(new String[]{"-r", "-l", "--no-ignore", "lorem", tempDir.toString()}));
+        assertEquals(tempDir.resolve("build/out.txt") + "\n" + tempDir.resolve("debug.log") + "\n"
+                + tempDir.resolve("main.txt") + "\n", outContent.toString());
+    }
+
+    @Test
+    void testRecursiveSearchDoesNotReadItsOwnOutput(@TempDir Path tempDir) throws Exception {
+        // Far more output than the writer buffers, so that it is on disk while the tree is searched
+        Files.writeString(tempDir.resolve("a.txt"), "needle in a haystack\n".repeat(50_000));
+        Files.writeString(tempDir.resolve("z.txt"), "needle\n");
+        Path outputFile = tempDir.resolve("out.txt");
+
+        Main.executeGrep(ArgumentParser.parse(
+                new String[]{"-r", "needle", tempDir.toString(), "-o", outputFile.toString()}));
+
+        List<String> lines = Files.readAllLines(outputFile);
+        assertEquals(50_001, lines.size());
+        assertEquals(tempDir.resolve("z.txt") + ":needle", lines.get(50_000));
+    }
+
+    @Test
+    void testInvalidUtf8IsPassedThroughUnchanged(@TempDir Path tempDir) throws Exception {
+        Path inputFile = tempDir.resolve("input.log");
+        byte[] line = {'b', 'a', 'd', ' ', (byte) 0xff, (byte) 0xfe, ' ', 'E', 'R', 'R', 'O', 'R', '\n'};
+        Files.write(inputFile, line);
+
+        Main.executeGrep(ArgumentParser.parse(new String[]{"ERROR", inputFile.toString()}));
+
+        assertArrayEquals(line, outContent.toByteArray());
+    }
+
+    @Test
+    void testEncodingSearchesLatin1WithoutDecoding(@TempDir Path tempDir) throws Exception {
+        Path inputFile = tempDir.resolve("latin1.txt");
+        Files.write(inputFile, "café au lait\ntea\n".getBytes(StandardCharsets.ISO_8859_1));
+
+        Main.executeGrep(ArgumentParser.parse(new String[]{"--encoding=ISO-8859-1", "café", inputFile.toString()}));
+
+        assertArrayEquals("café au lait\n".getBytes(StandardCharsets.ISO_8859_1), outContent.toByteArray());
+    }
+
+    @Test
+    void testDecompressesGzipOnStdin() throws Exception {
+        ByteArrayOutputStream compressed = new ByteArrayOutputStream();
+        try (GZIPOutputStream out = new GZIPOutputStream(compressed)) {
+            out.write("lorem ipsum\ndolor\n".getBytes(StandardCharsets.UTF_8));
+        }
+        InputStream originalIn = System.in;
+        System.setIn(new ByteArrayInputStream(compressed.toByteArray()));
+        try {
+            Main.executeGrep(ArgumentParser.parse(new String[]{"-z", "lorem"}));
+        } finally {
+            System.setIn(originalIn);
+        }
+
+        assertEquals("lorem ipsum\n", outContent.toString());
+    }
+}
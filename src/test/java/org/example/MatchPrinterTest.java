@@ -0,0 +1,200 @@
+package org.example;
+
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import java.io.ByteArrayInputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.lang.foreign.MemorySegment;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class MatchPrinterTest {
+
+    private static List<String> print(GrepOptions options, String filename, boolean prefix, String content,
+                                      Path tempDir) throws Exception {
+        Path output = tempDir.resolve("out.txt");
+        try (OutputWriter out = OutputWriter.open(output.toString())) {
+            MatchPrinter printer = new MatchPrinter(options, filename, prefix, out, new SearchStatus(options.isQuiet()));
+            GrepService.grep(GrepService.compile(List.of("match"), false),
+                    MemorySegment.ofArray(content.getBytes(StandardCharsets.UTF_8)), printer);
+        }
+        return Files.readAllLines(output);
+    }
+
+    @Test
+    void testPrintsLinesWithOptionalPrefix(@TempDir Path tempDir) throws Exception {
+        GrepOptions options = GrepOptions.builder().build();
+
+        assertEquals(List.of("a match", "match b"), print(options, "f.txt", false, "a match\nno\nmatch b\n", tempDir));
+        Files.delete(tempDir.resolve("out.txt"));
+        assertEquals(List.of("f.txt:a match"), print(options, "f.txt", true, "a match\n", tempDir));
+    }
+
+    @Test
+    void testListFilesPrintsNameOnce(@TempDir Path tempDir) throws Exception {
+        GrepOptions options = GrepOptions.builder().listFiles(true).build();
+
+        assertEquals(List.of("f.txt"), print(options, "f.txt", true, "match 1\nmatch 2\n", tempDir));
+    }
+
+    @Test
+    void testMaxCountStopsAfterNumMatches(@TempDir Path tempDir) throws Exception {
+        GrepOptions options = GrepOptions.builder().maxCount(2).build();
+
+        assertEquals(List.of("match 1", "match 2"), print(options, "f.txt", false, "match 1\nmatch 2\nmatch 3\n", tempDir));
+    }
+
+    @Test
+    void testQuietPrintsNothingButRecordsTheMatch() throws Exception {
+        OutputWriter out = OutputWriter.open(null);
+        SearchStatus status = new SearchStatus(true);
+        MatchPrinter printer = new MatchPrinter(GrepOptions.builder().quiet(true).build(), "f.txt", false, out, status);
+
+        GrepService.grep(GrepService.compile(List.of("match"), false),
+                MemorySegment.ofArray("match\n".getBytes(StandardCharsets.UTF_8)), printer);
+
+        assertTrue(status.hasMatched());
+        assertTrue(status.isOver());
+        assertTrue(printer.isDone());
+    }
+
+    @Test
+    void testStreamIsNotReadPastTheLastNeededMatch() throws Exception {
+        byte[] head = "match 1\nmatch 2\n".getBytes(StandardCharsets.UTF_8);
+        // Fails the search if anything beyond the first block is requested
+        InputStream input = new InputStream() {
+            private boolean served;
+
+            @Override
+            public int read() {
+                throw new UnsupportedOperationException();
+            }
+
+            @Override
+            public int read(byte[] b, int off, int len) throws IOException {
+                if (served) {
+                    throw new IOException("read past the first match");
+                }
+                served = true;
+                System.arraycopy(head, 0, b, off, head.length);
+                return head.length;
+            }
+
+            @Override
+            public int available() {
+                return served ? 0 : head.length;
+            }
+        };
+        SearchStatus status = new SearchStatus(false);
+        MatchPrinter printer = new MatchPrinter(GrepOptions.builder().maxCount(1).quiet(true).build(), "-", false,
+                OutputWriter.open(null), status);
+
+        GrepService.grep(GrepService.compile(List.of("match"), false), input, printer);
+
+        assertEquals(1, printer.getCount());
+    }
+
+    @Test
+    void testCountLinesPrintsCountOnFinish(@TempDir Path tempDir) throws Exception {
+        GrepOptions options = GrepOptions.builder().countLines(true).build();
+        Path output = tempDir.resolve("out.txt");
+
+        try (OutputWriter out = OutputWriter.open(output.toString())) {
+            MatchPrinter printer = new MatchPrinter(options, "f.txt", true, out, new SearchStatus(false));
+            GrepService.grep(GrepService.compile(List.of("match"), false),
+                    MemorySegment.ofArray("match match\nno\nmatch\n".getBytes(StandardCharsets.UTF_8)), printer);
+            printer.finish();
+
+            assertTrue(printer.isCountOnly());
+            assertEquals(2, printer.getCount());
+        }
+
+        assertEquals(List.of("f.txt:2"), Files.readAllLines(output));
+    }
+
+    @Test
+    void testContextLinesAndGroupSeparators(@TempDir Path tempDir) throws Exception {
+        GrepOptions options = GrepOptions.builder().beforeContext(1).afterContext(1).build();
+        String content = "1\nmatch 2\n3\n4\n5\nmatch 6\n7\nmatch 8\n9\n10\n";
+
+        assertEquals(List.of("1", "match 2", "3", "--", "5", "match 6", "7", "match 8", "9"),
+                print(options, "f.txt", false, content, tempDir));
+        Files.delete(tempDir.resolve("out.txt"));
+        assertEquals(List.of("f.txt-1", "f.txt:match 2", "f.txt-3"),
+                print(options, "f.txt", true, "1\nmatch 2\n3\n4\n", tempDir));
+    }
+
+    @Test
+    void testContextAcrossStreamedBlocks(@TempDir Path tempDir) throws Exception {
+        GrepOptions options = GrepOptions.builder().context(2).build();
+        byte[] input = "1\n2\n3\nmatch 4\n5\n6\n7\n8\n9\nmatch 10\n11\n".getBytes(StandardCharsets.UTF_8);
+        Path output = tempDir.resolve("out.txt");
+
+        // A line per read, so that every context line comes from an earlier or later block than its match
+        InputStream trickle = new ByteArrayInputStream(input) {
+            @Override
+            public synchronized int read(byte[] b, int off, int len) {
+                return super.read(b, off, Math.min(len, 2));
+            }
+        };
+        try (OutputWriter out = OutputWriter.open(output.toString())) {
+            GrepService.grep(GrepService.compile(List.of("match"), false), trickle,
+                    new MatchPrinter(options, "-", false, out, new SearchStatus(false)));
+        }
+
+        assertEquals(List.of("2", "3", "match 4", "5", "6", "--", "8", "9", "match 10", "11"),
+                Files.readAllLines(output));
+    }
+
+    @Test
+    void testLineNumbersAndByteOffsets(@TempDir Path tempDir) throws Exception {
+        String content = "a\nmatch b\nc\n\nmatch e\n";
+
+        assertEquals(List.of("2:match b", "5:match e"),
+                print(GrepOptions.builder().lineNumbers(true).build(), "f.txt", false, content, tempDir));
+        Files.delete(tempDir.resolve("out.txt"));
+        assertEquals(List.of("f.txt-1-0-a", "f.txt:2:2:match b", "f.txt-3-10-c", "f.txt-4-12-", "f.txt:5:13:match e"),
+                print(GrepOptions.builder().lineNumbers(true).byteOffsets(true).beforeContext(2).build(),
+                        "f.txt", true, content, tempDir));
+    }
+
+    @Test
+    void testLineNumbersAcrossStreamedBlocks(@TempDir Path tempDir) throws Exception {
+        GrepOptions options = GrepOptions.builder().lineNumbers(true).beforeContext(1).build();
+        byte[] input = "1\n2\n3\nmatch 4\n5\n6\nmatch 7\n".getBytes(StandardCharsets.UTF_8);
+        Path output = tempDir.resolve("out.txt");
+
+        InputStream trickle = new ByteArrayInputStream(input) {
+            @Override
+            public synchronized int read(byte[] b, int off, int len) {
+                return super.read(b, off, Math.min(len, 2));
+            }
+        };
+        try (OutputWriter out = OutputWriter.open(output.toString())) {
+            GrepService.grep(GrepService.compile(List.of("match"), false), trickle,
+                    new MatchPrinter(options, "-", false, out, new SearchStatus(false)));
+        }
+
+        assertEquals(List.of("3-3", "4:match 4", "--", "6-6", "7:match 7"), Files.readAllLines(output));
+    }
+
+    @Test
+    void testBinaryInputReportsFirstMatchOnly(@TempDir Path tempDir) throws Exception {
+        String content = "match\0\nmatch again\n";
+
+        assertEquals(List.of("Binary file f.txt matches"),
+                print(GrepOptions.builder().build(), "f.txt", true, content, tempDir));
+        Files.delete(tempDir.resolve("out.txt"));
+        assertEquals(List.of(), print(GrepOptions.builder().binaryFiles(BinaryFiles.WITHOUT_MATCH).build(),
+                "f.txt", true, content, tempDir));
+        Files.delete(tempDir.resolve("out.txt"));
+        assertEquals(List.of("match\0", "match again"),
+                print(GrepOptions.builder().binaryFiles(BinaryFiles.TEXT).build(), "f.txt", false, content, tempDir));
+    }
+}
@@ -148,4 +148,84 @@ class MultiFileGrepTest {
         assertFalse(result.hasMatches());
         assertEquals(0, result.getMatchCount());
     }
-}
\ No newline at end of file
+
+    @Test
+    void testGrepMultipleFilesStreamsPrefixedLines(@TempDir Path tempDir) throws Exception {
+        Path file1 = tempDir.resolve("file1.txt");
+        Files.writeString(file1, "test line 1\nno match\n");
+
+        Path file2 = tempDir.resolve("file2.txt");
+        Files.writeString(file2, "another test\n");
+
+        Path output = tempDir.resolve("out.txt");
+        try (OutputWriter out = OutputWriter.open(output.toString())) {
+            MultiFileGrep.grepMultipleFiles(
+                    new FileSearcher(MmapMode.AUTO),
+                    GrepService.compile(List.of("test"), false),
+                    Arrays.asList(file1, file2, tempDir.resolve("missing.txt")),
+                    out
+            );
+        }
+
+        assertEquals(Arrays.asList(file1 + ":test line 1", file2 + ":another test"), Files.readAllLines(output));
+    }
+
+    @Test
+    void testGrepMultipleFilesKeepsOffsetsForRegularFiles(@TempDir Path tempDir) throws IOException {
+        Path file = tempDir.resolve("test.txt");
+        Files.writeString(file, "this is a test\nanother line\r\ntest again\r\n");
+
+        FileGrepResult result = MultiFileGrep.grepMultipleFiles("test", List.of(file), false).get(0);
+
+        assertTrue(result.isCompact());
+        assertEquals(2, result.getMatchCount());
+        assertEquals(0, result.getLineStart(0));
+        assertEquals(14, result.getLineEnd(0));
+        assertEquals(Arrays.asList("this is a test", "test again"), result.getMatchingLines());
+    }
+
+    @Test
+    void testWriteAllResultsCopiesLinesFromFiles(@TempDir Path tempDir) throws Exception {
+        Path file1 = tempDir.resolve("file1.txt");
+        Files.writeString(file1, "test line 1\nno match\ntest line 2\n");
+        Path file2 = tempDir.resolve("file2.txt");
+        Files.writeString(file2, "another test");
+        List<FileGrepResult> results = MultiFileGrep.grepMultipleFiles("test", Arrays.asList(file1, file2), false);
+        results.add(new FileGrepResult("stdin", List.of("test from a list")));
+
+        Path output = tempDir.resolve("out.txt");
+        try (OutputWriter out = OutputWriter.open(output.toString())) {
+            MultiFileGrep.writeAllResults(results, out);
+        }
+
+        assertEquals(MultiFileGrep.formatAllResults(results), Files.readAllLines(output));
+        assertEquals(4, Files.readAllLines(output).size());
+    }
+
+    @Test
+    void testOffsetsOfFileReadInBlocksAreFileRelative(@TempDir Path tempDir) throws Exception {
+        Path file = tempDir.resolve("test.txt");
+        String filler = "filler\n".repeat(GrepService.STREAM_BLOCK_SIZE / 7 * 3);
+        Files.writeString(file, "test first\n" + filler + "test last\n");
+
+        // Never mapped and above the buffer threshold, so the file is read in blocks
+        FileGrepResult.OffsetCollector collector = new FileGrepResult.OffsetCollector();
+        new FileSearcher(MmapMode.NEVER, 1024).search(GrepService.compile(List.of("test"), false), file, collector);
+        FileGrepResult result = collector.toResult(file);
+
+        assertEquals(Arrays.asList("test first", "test last"), result.getMatchingLines());
+    }
+
+    @Test
+    void testWritingResultOfShrunkFileReportsError(@TempDir Path tempDir) throws Exception {
+        Path file = tempDir.resolve("test.txt");
+        Files.writeString(file, "first line\nthis is a test\n");
+        FileGrepResult result = MultiFileGrep.grepMultipleFiles("test", List.of(file), false).get(0);
+        Files.writeString(file, "short\n");
+
+        try (OutputWriter out = OutputWriter.open(tempDir.resolve("out.txt").toString())) {
+            GrepException exception = assertThrows(GrepException.class, () -> result.writeTo(out));
+            assertTrue(exception.getMessage().contains("test.txt"));
+        }
+    }
+}
@@ -7,8 +7,12 @@ import org.junit.jupiter.api.io.TempDir;
 
 import java.io.ByteArrayOutputStream;
 import java.io.PrintStream;
+import java.lang.foreign.Arena;
+import java.lang.foreign.MemorySegment;
+import java.nio.charset.StandardCharsets;
 import java.nio.file.Files;
 import java.nio.file.Path;
+import java.util.ArrayList;
 import java.util.Arrays;
 import java.util.Collections;
 import java.util.List;
@@ -172,4 +176,92 @@ class OutputWriterTest {
             OutputWriter.writeOutput(lines, outputFile.toString());
         });
     }
-}
\ No newline at end of file
+
+    @Test
+    void testOpenStdoutWritesMatchesAsTheyArrive() throws Exception {
+        MemorySegment content = MemorySegment.ofArray("lorem ipsum".getBytes(StandardCharsets.UTF_8));
+
+        try (OutputWriter out = OutputWriter.open(null)) {
+            out.accept(content, 0, 5);
+            out.withPrefix("file.txt:").accept(content, 6, 11);
+        }
+
+        assertEquals("lorem\nfile.txt:ipsum\n", outContent.toString());
+    }
+
+    @Test
+    void testOpenRejectsExistingFile(@TempDir Path tempDir) throws Exception {
+        Path outputFile = tempDir.resolve("existing.txt");
+        Files.writeString(outputFile, "existing content");
+
+        GrepException exception = assertThrows(GrepException.class, () -> OutputWriter.open(outputFile.toString()));
+
+        assertTrue(exception.getMessage().contains("File already exists"));
+        assertEquals("existing content", Files.readString(outputFile));
+    }
+
+    @Test
+    void testOpenFileWritesOutputLargerThanBuffer(@TempDir Path tempDir) throws Exception {
+        Path outputFile = tempDir.resolve("large.txt");
+        String line = "x".repeat(999);
+
+        try (OutputWriter out = OutputWriter.open(outputFile.toString())) {
+            for (int i = 0; i < 1000; i++) {
+                out.writeLine(line);
+            }
+            out.write("tail\n".getBytes(StandardCharsets.UTF_8), 0, 5);
+        }
+
+        List<String> writtenLines = Files.readAllLines(outputFile);
+        assertEquals(1001, writtenLines.size());
+        assertEquals(line, writtenLines.get(999));
+        assertEquals("tail", writtenLines.get(1000));
+    }
+
+    @Test
+    void testFlushMakesBufferedLinesVisible() throws Exception {
+        try (OutputWriter out = OutputWriter.open(null)) {
+            out.writeLine("first");
+            out.flush();
+
+            assertEquals("first\n", outContent.toString());
+        }
+    }
+
+    @Test
+    void testFlushIfDueShowsLinesThatHaveWaited() throws Exception {
+        try (OutputWriter out = OutputWriter.open(null)) {
+            out.write("first".getBytes(StandardCharsets.UTF_8), 0, 5);
+            out.endLine();
+            out.flushIfDue();
+            assertEquals("", outContent.toString());
+
+            // No further line comes, so only the check between slices of the search shows it
+            Thread.sleep(250);
+            out.flushIfDue();
+            assertEquals("first\n", outContent.toString());
+        }
+    }
+
+    @Test
+    void testLongLinesFromMappedInputAreWrittenInOrder(@TempDir Path tempDir) throws Exception {
+        StringBuilder input = new StringBuilder();
+        List<String> expected = new ArrayList<>();
+        for (int i = 0; i < 3000; i++) {
+            // Alternate lines that are copied with lines long enough to be written from the mapping directly
+            String line = i % 2 == 0 ? "match " + i : "match " + i + " " + "y".repeat(2000);
+            input.append(line).append('\n');
+            expected.add("in.txt:" + line);
+        }
+        Path inputFile = Files.writeString(tempDir.resolve("in.txt"), input);
+        Path outputFile = tempDir.resolve("out.txt");
+
+        try (OutputWriter out = OutputWriter.open(outputFile.toString());
+             Arena arena = Arena.ofConfined()) {
+            GrepService.grep(GrepService.compile(List.of("match"), false), Main.mapFile(inputFile, arena),
+                    out.withPrefix("in.txt:"));
+        }
+
+        assertEquals(expected, Files.readAllLines(outputFile));
+    }
+}
@@ -0,0 +1,122 @@
+package org.example;
+
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class ParallelGrepTest {
+
+    private static List<Path> createFiles(Path dir, int count) throws IOException {
+        List<Path> files = new ArrayList<>();
+        for (int i = 0; i < count; i++) {
+            Path file = dir.resolve(String.format("file%03d.txt", i));
+            // Larger files early on so that later files tend to finish first
+            String filler = "filler line\n".repeat((count - i) * 50);
+            Files.writeString(file, "match " + i + "\n" + filler + (i % 3 == 0 ? "" : "another match " + i + "\n"));
+            files.add(file);
+        }
+        return files;
+    }
+
+    private static List<String> expectedLines(List<Path> files) {
+        List<String> expected = new ArrayList<>();
+        for (int i = 0; i < files.size(); i++) {
+            expected.add(files.get(i) + ":match " + i);
+            if (i % 3 != 0) {
+                expected.add(files.get(i) + ":another match " + i);
+            }
+        }
+        return expected;
+    }
+
+    private static List<String> run(ParallelGrep parallelGrep, List<Path> files, Path output) throws Exception {
+        try (parallelGrep; OutputWriter out = OutputWriter.open(output.toString())) {
+            parallelGrep.grep(new FileSearcher(MmapMode.AUTO), GrepService.compile(List.of("match"), false), files, out);
+        }
+        return Files.readAllLines(output);
+    }
+
+    @Test
+    void testPlatformThreadsKeepInputOrder(@TempDir Path tempDir) throws Exception {
+        List<Path> files = createFiles(tempDir, 100);
+
+        List<String> result = run(ParallelGrep.platformThreads(4), files, tempDir.resolve("out.txt"));
+
+        assertEquals(expectedLines(files), result);
+    }
+
+    @Test
+    void testVirtualThreadsKeepInputOrder(@TempDir Path tempDir) throws Exception {
+        List<Path> files = createFiles(tempDir, 100);
+
+        List<String> result = run(ParallelGrep.virtualThreads(16), files, tempDir.resolve("out.txt"));
+
+        assertEquals(expectedLines(files), result);
+    }
+
+    @Test
+    void testUnreadableFilesAreSkipped(@TempDir Path tempDir) throws Exception {
+        List<Path> files = createFiles(tempDir, 3);
+        files.add(1, tempDir.resolve("missing.txt"));
+
+        List<String> result = run(ParallelGrep.platformThreads(2), files, tempDir.resolve("out.txt"));
+
+        files.remove(1);
+        assertEquals(expectedLines(files), result);
+    }
+
+    @Test
+    void testNoFiles(@TempDir Path tempDir) throws Exception {
+        List<String> result = run(ParallelGrep.virtualThreads(4), List.of(), tempDir.resolve("out.txt"));
+
+        assertTrue(result.isEmpty());
+    }
+
+    @Test
+    void testOutputLargerThanFileBufferStaysInOrder(@TempDir Path tempDir) throws Exception {
+        // Every file has more matching output than a file may buffer, so the files behind the first one
+        // wait for their turn and then write straight to the output
+        int linesPerFile = ParallelGrep.OUTPUT_BUFFER_LIMIT / 20 + 1000;
+        List<Path> files = new ArrayList<>();
+        List<String> expected = new ArrayList<>();
+        for (int i = 0; i < 6; i++) {
+            Path file = tempDir.resolve("big" + i + ".txt");
+            StringBuilder content = new StringBuilder();
+            for (int line = 0; line < linesPerFile; line++) {
+                content.append("match ").append(i).append(' ').append(line).append('\n');
+                expected.add(file + ":match " + i + " " + line);
+            }
+            Files.writeString(file, content);
+            files.add(file);
+        }
+
+        List<String> result = run(ParallelGrep.platformThreads(3), files, tempDir.resolve("out.txt"));
+
+        assertEquals(expected, result);
+    }
+
+    @Test
+    void testNetworkFileSystemsAreRecognisedByType() {
+        assertTrue(ParallelGrep.isNetworkFileSystem("nfs4"));
+        assertTrue(ParallelGrep.isNetworkFileSystem("cifs"));
+        assertTrue(ParallelGrep.isNetworkFileSystem("fuse.sshfs"));
+        assertFalse(ParallelGrep.isNetworkFileSystem("ext4"));
+        assertFalse(ParallelGrep.isNetworkFileSystem("tmpfs"));
+    }
+
+    @Test
+    void testExecutorChosenForLocationKeepsInputOrder(@TempDir Path tempDir) throws Exception {
+        List<Path> files = createFiles(tempDir, 20);
+
+        List<String> result = run(ParallelGrep.forFilesAt(tempDir), files, tempDir.resolve("out.txt"));
+
+        assertEquals(expectedLines(files), result);
+    }
+}
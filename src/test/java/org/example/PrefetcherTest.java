@@ -0,0 +1,62 @@
+package org.example;
+
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class PrefetcherTest {
+
+    private static String text(ByteBuffer buffer) {
+        return StandardCharsets.UTF_8.decode(buffer.duplicate()).toString();
+    }
+
+    @Test
+    void testLoadsFileContent(@TempDir Path tempDir) throws IOException {
+        Path file = Files.writeString(tempDir.resolve("a.txt"), "lorem\nipsum\n");
+
+        try (Prefetcher prefetcher = new Prefetcher(2, 1024)) {
+            ByteBuffer loaded = prefetcher.take(prefetcher.prefetch(new FileSearcher(MmapMode.AUTO), file));
+
+            assertEquals("lorem\nipsum\n", text(loaded));
+            prefetcher.release(loaded);
+        }
+    }
+
+    @Test
+    void testFilesOverBudgetAreLeftToSearch(@TempDir Path tempDir) throws IOException {
+        FileSearcher searcher = new FileSearcher(MmapMode.AUTO);
+        Path first = Files.writeString(tempDir.resolve("a.txt"), "12345678");
+        Path second = Files.writeString(tempDir.resolve("b.txt"), "abcdefgh");
+
+        try (Prefetcher prefetcher = new Prefetcher(1, 10)) {
+            ByteBuffer held = prefetcher.take(prefetcher.prefetch(searcher, first));
+            assertNotNull(held);
+            assertNull(prefetcher.take(prefetcher.prefetch(searcher, second)));
+
+            // Releasing the first buffer makes room again
+            prefetcher.release(held);
+            ByteBuffer loaded = prefetcher.take(prefetcher.prefetch(searcher, second));
+            assertEquals("abcdefgh", text(loaded));
+            prefetcher.release(loaded);
+        }
+    }
+
+    @Test
+    void testMappedAndMissingFilesAreLeftToSearch(@TempDir Path tempDir) throws IOException {
+        Path file = Files.writeString(tempDir.resolve("a.txt"), "lorem\n");
+
+        try (Prefetcher prefetcher = new Prefetcher(1, 1024)) {
+            assertNull(prefetcher.take(prefetcher.prefetch(new FileSearcher(MmapMode.ALWAYS), file)));
+            assertNull(prefetcher.take(prefetcher.prefetch(new FileSearcher(MmapMode.AUTO, 2), file)));
+            assertNull(prefetcher.take(prefetcher.prefetch(new FileSearcher(MmapMode.AUTO),
+                    tempDir.resolve("missing.txt"))));
+        }
+    }
+}
@@ -0,0 +1,86 @@
+package org.example;
+
+import org.junit.jupiter.api.Test;
+
+import java.lang.foreign.MemorySegment;
+import java.nio.charset.StandardCharsets;
+import java.util.Arrays;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class RegexMatcherTest {
+
+    private static List<String> grep(String regex, boolean ignoreCase, String text) {
+        ByteMatcher matcher = RegexMatcher.compile(List.of(regex), ignoreCase);
+        return GrepService.grep(matcher, MemorySegment.ofArray(text.getBytes(StandardCharsets.UTF_8)));
+    }
+
+    @Test
+    void testAlternationAndRepetition() {
+        List<String> result = grep("(cat|dog)s+", false, "cats\ndog\ndogsss\nbird\n");
+
+        assertEquals(Arrays.asList("cats", "dogsss"), result);
+    }
+
+    @Test
+    void testAnchorsApplyPerLine() {
+        List<String> result = grep("^ab$", false, "ab\nabc\nxab\nab");
+
+        assertEquals(Arrays.asList("ab", "ab"), result);
+    }
+
+    @Test
+    void testEmptyLineMatchesAnchoredEmptyPattern() {
+        List<String> result = grep("^$", false, "a\n\nb\n");
+
+        assertEquals(List.of(""), result);
+    }
+
+    @Test
+    void testBracketExpressionsAndClasses() {
+        List<String> result = grep("[[:upper:]][0-9]{2,3}\\s", false, "A12 x\nb12 y\nC1234\nD999 z\n");
+
+        assertEquals(Arrays.asList("A12 x", "D999 z"), result);
+    }
+
+    @Test
+    void testNegatedClassMatchesMultiByteCharacters() {
+        List<String> result = grep("x[^a]y", false, "xay\nxéy\nxby\n");
+
+        assertEquals(Arrays.asList("xéy", "xby"), result);
+    }
+
+    @Test
+    void testIgnoreCase() {
+        List<String> result = grep("err(or)?:", true, "ERROR: disk\nErr: net\nerror\n");
+
+        assertEquals(Arrays.asList("ERROR: disk", "Err: net"), result);
+    }
+
+    @Test
+    void testBackReferenceFallsBackToJavaRegex() {
+        List<String> result = grep("(ab)\\1", false, "abab\nab\nxababx\n");
+
+        assertEquals(Arrays.asList("abab", "xababx"), result);
+    }
+
+    @Test
+    void testPathologicalPatternStaysLinear() {
+        String line = "a".repeat(5000);
+
+        List<String> result = grep("(a*)*b", false, line + "\n");
+
+        assertTrue(result.isEmpty());
+    }
+
+    @Test
+    void testInvalidRegexReportsError() {
+        IllegalArgumentException exception = assertThrows(
+                IllegalArgumentException.class,
+                () -> RegexMatcher.compile(List.of("(unclosed"), false)
+        );
+
+        assertTrue(exception.getMessage().contains("invalid regular expression"));
+    }
+}
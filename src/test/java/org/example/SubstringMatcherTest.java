@@ -0,0 +1,72 @@
+package org.example;
+
+import org.junit.jupiter.api.Test;
+
+import java.lang.foreign.MemorySegment;
+import java.nio.charset.StandardCharsets;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class SubstringMatcherTest {
+
+    private static MemorySegment segment(String text) {
+        return MemorySegment.ofArray(text.getBytes(StandardCharsets.UTF_8));
+    }
+
+    private static long find(ByteMatcher matcher, String text) {
+        MemorySegment haystack = segment(text);
+        return matcher.find(haystack, 0, haystack.byteSize());
+    }
+
+    @Test
+    void testHorspoolFindsFirstOccurrence() {
+        ByteMatcher matcher = new HorspoolMatcher("lorem".getBytes(StandardCharsets.UTF_8));
+
+        assertEquals(6, find(matcher, "dolor lorem ipsum lorem"));
+        assertEquals(-1, find(matcher, "dolor sit amet"));
+    }
+
+    @Test
+    void testTwoWayFindsPeriodicPattern() {
+        ByteMatcher matcher = new TwoWayMatcher("abababababababababababababababababab".getBytes(StandardCharsets.UTF_8));
+        String text = "abababababababababababababababababa" + "c" + "abababababababababababababababababab";
+
+        assertEquals(36, find(matcher, text));
+    }
+
+    @Test
+    void testTwoWayNoMatch() {
+        String pattern = "this pattern is longer than the horspool threshold";
+        ByteMatcher matcher = new TwoWayMatcher(pattern.getBytes(StandardCharsets.UTF_8));
+
+        assertEquals(-1, find(matcher, "this pattern is longer than the horspool limit"));
+        assertEquals(4, find(matcher, "xyz " + pattern));
+    }
+
+    @Test
+    void testCompileAgreesWithStringIndexOf() {
+        String text = "the quick brown fox jumps over the lazy dog, again and again and again";
+        String[] patterns = {"t", "again", "dog,", "and again and again", "the lazy dog, again and again and again", "cat"};
+
+        for (String pattern : patterns) {
+            ByteMatcher matcher = SubstringMatcher.compile(pattern.getBytes(StandardCharsets.UTF_8));
+            assertEquals(text.indexOf(pattern), find(matcher, text), pattern);
+        }
+    }
+
+    @Test
+    void testFindRespectsRange() {
+        ByteMatcher matcher = SubstringMatcher.compile("ab".getBytes(StandardCharsets.UTF_8));
+        MemorySegment haystack = segment("ab ab ab");
+
+        assertEquals(3, matcher.find(haystack, 1, haystack.byteSize()));
+        assertEquals(-1, matcher.find(haystack, 1, 4));
+    }
+
+    @Test
+    void testMultiByteUtf8Pattern() {
+        ByteMatcher matcher = SubstringMatcher.compile("café".getBytes(StandardCharsets.UTF_8));
+
+        assertEquals(3, find(matcher, "le café noir"));
+    }
+}
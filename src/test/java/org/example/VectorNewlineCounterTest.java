@@ -0,0 +1,49 @@
+package org.example;
+
+import org.junit.jupiter.api.Test;
+
+import java.lang.foreign.MemorySegment;
+import java.util.Random;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class VectorNewlineCounterTest {
+
+    private static long naiveCount(byte[] bytes, int from, int to) {
+        long count = 0;
+        for (int i = from; i < to; i++) {
+            if (bytes[i] == '\n') {
+                count++;
+            }
+        }
+        return count;
+    }
+
+    @Test
+    void testAgreesWithScalarAndNaiveCounts() {
+        // Bytes next to '\n' in value, or equal to it apart from the high bit, must not be counted
+        byte[] alphabet = {'\n', '\n' | (byte) 0x80, '\t', 0x0b, 0, (byte) 0xff, 'a'};
+        Random random = new Random(42);
+        byte[] bytes = new byte[1000];
+        for (int i = 0; i < bytes.length; i++) {
+            bytes[i] = alphabet[random.nextInt(alphabet.length)];
+        }
+        MemorySegment segment = MemorySegment.ofArray(bytes);
+
+        for (int from : new int[]{0, 1, 7, 63}) {
+            for (int to : new int[]{from, from + 5, 500, 1000}) {
+                long expected = naiveCount(bytes, from, to);
+                assertEquals(expected, VectorNewlineCounter.count(segment, from, to), from + ".." + to);
+                assertEquals(expected, ByteScan.countNewlinesScalar(segment, from, to), from + ".." + to);
+            }
+        }
+    }
+
+    @Test
+    void testOnlyNewlines() {
+        MemorySegment segment = MemorySegment.ofArray("\n".repeat(130).getBytes());
+
+        assertEquals(130, ByteScan.countNewlines(segment, 0, 130));
+        assertEquals(0, ByteScan.countNewlines(segment, 5, 5));
+    }
+}
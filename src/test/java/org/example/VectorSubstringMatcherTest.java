@@ -0,0 +1,59 @@
+package org.example;
+
+import org.junit.jupiter.api.Test;
+
+import java.lang.foreign.MemorySegment;
+import java.nio.charset.StandardCharsets;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class VectorSubstringMatcherTest {
+
+    private static long find(String pattern, String text, long from) {
+        ByteMatcher matcher = new VectorSubstringMatcher(pattern.getBytes(StandardCharsets.UTF_8));
+        MemorySegment haystack = MemorySegment.ofArray(text.getBytes(StandardCharsets.UTF_8));
+        return matcher.find(haystack, from, haystack.byteSize());
+    }
+
+    @Test
+    void testMatchBeyondFirstVectorBlock() {
+        String text = "x".repeat(200) + "needle" + "x".repeat(10);
+
+        assertEquals(200, find("needle", text, 0));
+    }
+
+    @Test
+    void testFalseCandidatesAreRejected() {
+        String text = "nxxxxe ".repeat(40) + "needle";
+
+        assertEquals(280, find("needle", text, 0));
+    }
+
+    @Test
+    void testMatchInScalarTail() {
+        assertEquals(3, find("end", "at end", 0));
+        assertEquals(-1, find("ends", "at end", 0));
+    }
+
+    @Test
+    void testSingleBytePattern() {
+        String text = "a".repeat(100) + "b";
+
+        assertEquals(100, find("b", text, 0));
+        assertEquals(5, find("a", text, 5));
+    }
+
+    @Test
+    void testAgreesWithStringIndexOf() {
+        StringBuilder text = new StringBuilder();
+        for (int i = 0; i < 500; i++) {
+            text.append((char) ('a' + (i * 7 % 5)));
+        }
+        String haystack = text.toString();
+
+        for (int start = 0; start < 20; start++) {
+            String pattern = haystack.substring(start * 20, start * 20 + 3 + start % 6);
+            assertEquals(haystack.indexOf(pattern), find(pattern, haystack, 0), pattern);
+        }
+    }
+}